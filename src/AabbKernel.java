@@ -0,0 +1,115 @@
+// Box tests over structure-of-arrays bounds (x, y, width, height columns). Each test is the sign bit of
+// subtractions ANDed together, with no branch per box, so the JIT can turn the loops into SIMD and test a
+// block of boxes in a few vector instructions; the find methods only revisit a block that hit.
+// Coordinates must stay within +/-2^30 so the subtractions cannot overflow.
+final class AabbKernel {
+    // Boxes tested before looking for a hit; long enough that the vector loop outweighs its setup
+    static final int BLOCK = 256;
+
+    static final int LANDING_TOLERANCE = 10; // Same as Collidable.isCollidingWithTop
+
+    private AabbKernel() {
+    }
+
+    // Writes the indices of the boxes below count that overlap the query box to the front of hits, in order,
+    // and returns how many there are. hits needs room for count entries.
+    public static int overlaps(int[] x, int[] y, int[] width, int[] height, int count,
+                               int queryX, int queryY, int queryWidth, int queryHeight, int[] hits) {
+        int queryRight = queryX + queryWidth, queryBottom = queryY + queryHeight;
+        for (int i = 0; i < count; i++) {
+            hits[i] = ((x[i] - queryRight) & (queryX - x[i] - width[i])
+                    & (y[i] - queryBottom) & (queryY - y[i] - height[i])) >>> 31;
+        }
+        // Compacting without a branch per box, as hits are too irregular to predict
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int hit = hits[i];
+            hits[found] = i;
+            found += hit;
+        }
+        return found;
+    }
+
+    // The first* methods only hit solid boxes: solid holds -1 for a box that is and 0 for one that is passed through
+
+    // First box on the layer that the object overlaps at all, or -1; Collidable.isCollidingWithSide
+    public static int firstOverlap(int[] x, int[] y, int[] width, int[] height, int[] layer, int[] solid, int count,
+                                   int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        int right = objX + objWidth, bottom = objY + objHeight;
+        for (int start = 0; start < count; start += BLOCK) {
+            int end = Math.min(count, start + BLOCK);
+            int any = 0;
+            for (int i = start; i < end; i++) {
+                any |= solid[i]
+                        & overlap(x[i], y[i], width[i], height[i], layer[i], objX, objY, right, bottom, playerLayer);
+            }
+            if (any >= 0) continue;
+            for (int i = start; i < end; i++) {
+                if ((solid[i]
+                        & overlap(x[i], y[i], width[i], height[i], layer[i], objX, objY, right, bottom, playerLayer)) < 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // First box on the layer the object stands on, or -1; Collidable.isCollidingWithTop
+    public static int firstLanding(int[] x, int[] y, int[] width, int[] layer, int[] solid, int count,
+                                   int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        int right = objX + objWidth, bottom = objY + objHeight;
+        for (int start = 0; start < count; start += BLOCK) {
+            int end = Math.min(count, start + BLOCK);
+            int any = 0;
+            for (int i = start; i < end; i++) {
+                any |= solid[i] & landing(x[i], y[i], width[i], layer[i], objX, right, bottom, playerLayer);
+            }
+            if (any >= 0) continue;
+            for (int i = start; i < end; i++) {
+                if ((solid[i] & landing(x[i], y[i], width[i], layer[i], objX, right, bottom, playerLayer)) < 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // First box on the layer the object overlaps without standing on it, or -1
+    public static int firstSideHit(int[] x, int[] y, int[] width, int[] height, int[] layer, int[] solid, int count,
+                                   int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        int right = objX + objWidth, bottom = objY + objHeight;
+        for (int start = 0; start < count; start += BLOCK) {
+            int end = Math.min(count, start + BLOCK);
+            int any = 0;
+            for (int i = start; i < end; i++) {
+                any |= solid[i]
+                        & sideHit(x[i], y[i], width[i], height[i], layer[i], objX, objY, right, bottom, playerLayer);
+            }
+            if (any >= 0) continue;
+            for (int i = start; i < end; i++) {
+                if ((solid[i]
+                        & sideHit(x[i], y[i], width[i], height[i], layer[i], objX, objY, right, bottom, playerLayer)) < 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The tests below are negative on a hit and non-negative otherwise
+    static int overlap(int x, int y, int width, int height, int layer,
+                               int objX, int objY, int right, int bottom, int playerLayer) {
+        return ((layer ^ playerLayer) - 1) & (x - right) & (objX - x - width) & (y - bottom) & (objY - y - height);
+    }
+
+    static int landing(int x, int y, int width, int layer, int objX, int right, int bottom, int playerLayer) {
+        return ((layer ^ playerLayer) - 1) & (x - right) & (objX - x - width)
+                & (y - bottom - 1) & (bottom - y - LANDING_TOLERANCE - 1);
+    }
+
+    static int sideHit(int x, int y, int width, int height, int layer,
+                               int objX, int objY, int right, int bottom, int playerLayer) {
+        int onTop = (y - bottom - 1) & (bottom - y - LANDING_TOLERANCE - 1);
+        return overlap(x, y, width, height, layer, objX, objY, right, bottom, playerLayer) & ~onTop;
+    }
+}
@@ -0,0 +1,599 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Steps many independent copies of a level in lockstep for bots and training. The level is built once and
+// only ever read: its static objects go in one SpatialGrid shared by every environment. Player state, which
+// buttons are held and the echoes are kept as one array per field across all environments; each environment
+// also has its own geometry groups and timers, so a button switches groups in its environment only, exactly
+// as it does in the game. Movement follows PlayerPhysics and the game's order of collision tests.
+//
+// The echoes are Echo Jump's (EchoJumpGame): ECHO leaves one where the player stands, which turns solid once
+// they step off it. Replayed echoes would need every environment to keep the last 180 ticks of its path, and
+// quantum platforms are not simulated at all, so levels with them are refused.
+final class BatchEnvironment {
+    // Action bits, one int per environment per step, applied in this order
+    public static final int LEFT = 1, RIGHT = 2, JUMP = 4, ECHO = 8, SWITCH_LAYER = 16;
+
+    // Observation layout, OBSERVATION_SIZE floats per environment
+    public static final int OBS_X = 0, OBS_Y = 1, OBS_VELOCITY_X = 2, OBS_VELOCITY_Y = 3, OBS_ON_GROUND = 4,
+            OBS_CAN_JUMP = 5, OBS_LAYER = 6, OBS_CLEARED = 7, OBS_ECHOES = 8;
+    public static final int OBSERVATION_SIZE = 9;
+
+    public static final float GOAL_REWARD = 1f, DEATH_REWARD = -1f, STEP_REWARD = -0.001f;
+
+    private static final int MAX_EPISODE_STEPS = 3000;
+    private static final int ENVIRONMENTS_PER_TASK = 256;
+    private static final int QUERY_MARGIN = 16; // As the game's, around the area a tick's move sweeps
+    private static final int ECHO_CAPACITY = 4; // Echo slots an environment starts with once it makes one
+
+    private final int count;
+    private final int startLayer;
+    private final boolean layerSwitching, echoesAllowed;
+
+    // Shared level, built once; its buttons' group actions are run on each environment's groups
+    private static final Runnable COMPLETE_LEVEL = () -> {
+    }; // Stands in for the game's completeLevel, which the environment does itself
+    private final LevelTemplate level;
+    private final SpatialGrid staticIndex;
+    private final Button[] buttons;
+    private final TileMap[] tileMaps; // For their hazards
+    private final GeometryStore geometry; // Or null
+    private final int disappearingGroup;
+
+    // Per-environment state, structure of arrays
+    private final int[] x, y, velocityX, velocityY, layer, episodeSteps;
+    private final boolean[] onGround, canJump, jumping, completed, needsReset;
+    private final boolean[] pressed; // Per environment, then per button
+    private final Collidable[] support, side; // The game's ContactCache: last tick's floor and wall
+    private final int[] supportEcho; // Echo id stood on, or -1
+    private final TimingWheel[] timers;
+    private final GeometryGroups[] groups;
+    private final Runnable[] completions; // For goals behind a delay, run by the environment's timers
+
+    // Echoes in the order of the game's echo table, which fills a gap with its last row; allocated for an
+    // environment when it first makes one
+    private final int[] echoCount, nextEchoId, placedEcho;
+    private final int[][] echoX, echoY, echoLayer, echoId;
+    private final long[][] echoExpiry;
+    private final boolean[][] echoSolid;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Nearby> nearby = ThreadLocal.withInitial(Nearby::new);
+
+    // Arguments of the step in progress, read by the worker tasks
+    private int[] stepActions;
+    private float[] stepObservations, stepRewards;
+    private boolean[] stepDones;
+
+    // Builds the level as the game does, with its buttons completing it and switching the given groups
+    interface LevelBuilder {
+        LevelTemplate build(Runnable completeLevel, GeometryGroups groups);
+    }
+
+    public BatchEnvironment(LevelBuilder builder, int count, int threads) {
+        this.count = count;
+        this.level = builder.build(COMPLETE_LEVEL, new GeometryGroups(new TimingWheel()));
+        if (level.hasQuantumPlatforms()) {
+            throw new IllegalArgumentException("Level " + level.getNumber() + " has quantum platforms, which are not simulated");
+        }
+        this.startLayer = level.getStartLayer();
+        this.layerSwitching = level.allowsLayerSwitching();
+        this.echoesAllowed = level.allowsEchoes();
+
+        staticIndex = new SpatialGrid(128, level.getStaticCount());
+        addAll(level.getPlatforms());
+        addAll(level.getDisappearingPlatforms());
+        addAll(level.getMountains());
+        addAll(level.getTerrain());
+        addAll(level.getTileMaps());
+        buttons = level.getButtons();
+        tileMaps = level.getTileMaps();
+        geometry = level.getGeometry();
+        disappearingGroup = level.getGroup(LevelTemplate.DISAPPEARING);
+
+        x = new int[count];
+        y = new int[count];
+        velocityX = new int[count];
+        velocityY = new int[count];
+        layer = new int[count];
+        episodeSteps = new int[count];
+        onGround = new boolean[count];
+        canJump = new boolean[count];
+        jumping = new boolean[count];
+        completed = new boolean[count];
+        needsReset = new boolean[count];
+        pressed = new boolean[count * buttons.length];
+        support = new Collidable[count];
+        side = new Collidable[count];
+        supportEcho = new int[count];
+        timers = new TimingWheel[count];
+        groups = new GeometryGroups[count];
+        completions = new Runnable[count];
+        echoCount = new int[count];
+        nextEchoId = new int[count];
+        placedEcho = new int[count];
+        echoX = new int[count][];
+        echoY = new int[count][];
+        echoLayer = new int[count][];
+        echoId = new int[count][];
+        echoExpiry = new long[count][];
+        echoSolid = new boolean[count][];
+        for (int env = 0; env < count; env++) {
+            int environment = env;
+            timers[env] = new TimingWheel();
+            groups[env] = new GeometryGroups(timers[env]);
+            completions[env] = () -> completed[environment] = true;
+            reset(env);
+        }
+
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    private void addAll(Collidable[] source) {
+        for (Collidable collidable : source) {
+            staticIndex.insert(collidable);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Advances every environment by one tick. Environments that finished on the previous step start a new
+    // episode first. observations holds OBSERVATION_SIZE floats per environment.
+    public void step(int[] actions, float[] observations, float[] rewards, boolean[] dones) {
+        if (actions.length < count || rewards.length < count || dones.length < count
+                || observations.length < count * OBSERVATION_SIZE) {
+            throw new IllegalArgumentException("Step arrays are smaller than the batch of " + count);
+        }
+        stepActions = actions;
+        stepObservations = observations;
+        stepRewards = rewards;
+        stepDones = dones;
+        if (pool == null || count <= ENVIRONMENTS_PER_TASK) {
+            stepRange(0, count);
+        } else {
+            pool.invoke(new StepTask(0, count));
+        }
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    private final class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+
+        StepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ENVIRONMENTS_PER_TASK) {
+                stepRange(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StepTask(from, middle), new StepTask(middle, to));
+            }
+        }
+    }
+
+    private void stepRange(int from, int to) {
+        Nearby candidates = nearby.get();
+        for (int env = from; env < to; env++) {
+            if (needsReset[env]) reset(env);
+            float reward = stepOne(env, stepActions[env], candidates);
+            boolean done = needsReset[env];
+            stepRewards[env] = reward;
+            stepDones[env] = done;
+            observe(env, stepObservations, env * OBSERVATION_SIZE);
+        }
+    }
+
+    private void reset(int env) {
+        x[env] = PlayerPhysics.START_X;
+        y[env] = PlayerPhysics.START_Y;
+        velocityX[env] = 0;
+        velocityY[env] = 0;
+        layer[env] = startLayer;
+        episodeSteps[env] = 0;
+        onGround[env] = true;
+        canJump[env] = true;
+        jumping[env] = false;
+        completed[env] = false;
+        needsReset[env] = false;
+        support[env] = null;
+        side[env] = null;
+        supportEcho[env] = -1;
+        echoCount[env] = 0;
+        placedEcho[env] = -1;
+        // As the game's restart: no pending timers, groups as the level starts them, buttons released
+        timers[env].clear();
+        groups[env].load(level);
+        Arrays.fill(pressed, env * buttons.length, (env + 1) * buttons.length, false);
+    }
+
+    // One tick of EchoMovementGame.gameLoop for a single environment; returns the reward
+    private float stepOne(int env, int action, Nearby candidates) {
+        timers[env].advance();
+        expireEchoes(env);
+
+        // Input, as applied from the key handlers
+        if ((action & JUMP) != 0 && onGround[env] && canJump[env]) {
+            velocityY[env] = PlayerPhysics.JUMP_FORCE;
+            jumping[env] = true;
+            canJump[env] = false;
+            setSupport(env, null);
+        }
+        if ((action & ECHO) != 0 && echoesAllowed) {
+            placeEcho(env);
+        }
+        if ((action & SWITCH_LAYER) != 0 && layerSwitching) {
+            layer[env] = PlayerPhysics.otherLayer(layer[env]);
+        }
+
+        // updatePlayerVelocity
+        velocityY[env] = PlayerPhysics.fallVelocity(velocityY[env], onGround[env]);
+        if (jumping[env]) {
+            velocityY[env] = PlayerPhysics.JUMP_FORCE;
+            onGround[env] = false;
+            jumping[env] = false;
+        }
+        velocityX[env] = PlayerPhysics.runVelocity((action & LEFT) != 0, (action & RIGHT) != 0);
+
+        // handleMovement; nothing in the batch moves, so there is no support to be carried by
+        int initialX = x[env], initialY = y[env];
+        int targetX = initialX + velocityX[env], targetY = initialY + velocityY[env];
+        pressButtons(env, initialX, initialY);
+        candidates.sweep(initialX, initialY, targetX, targetY);
+        moveHorizontally(env, initialX, initialY, targetX, candidates);
+        moveVertically(env, x[env], initialY, targetY, candidates);
+        if (placedEcho[env] >= 0) solidifyPlacedEcho(env);
+
+        float reward = STEP_REWARD;
+        if (completed[env]) {
+            reward = GOAL_REWARD;
+            needsReset[env] = true;
+        }
+        // killPlayer, which the game runs at the start of the next tick
+        if (PlayerPhysics.hasFallen(y[env]) || touchesHazard(env)) {
+            reward = DEATH_REWARD;
+            needsReset[env] = true;
+        }
+        if (++episodeSteps[env] >= MAX_EPISODE_STEPS) {
+            needsReset[env] = true;
+        }
+        return reward;
+    }
+
+    // The static objects around the area a tick's move sweeps, as the game's gatherCollidables: queried on
+    // first use, after the buttons have had their say. One per worker thread.
+    private final class Nearby {
+        final ArrayList<Collidable> objects = new ArrayList<>();
+        private int sweepX, sweepY, sweepWidth, sweepHeight;
+        private boolean gathered;
+
+        void sweep(int initialX, int initialY, int targetX, int targetY) {
+            sweepX = Math.min(initialX, targetX) - QUERY_MARGIN;
+            sweepY = Math.min(initialY, targetY) - QUERY_MARGIN;
+            sweepWidth = Math.abs(targetX - initialX) + PlayerPhysics.WIDTH + 2 * QUERY_MARGIN;
+            sweepHeight = Math.abs(targetY - initialY) + PlayerPhysics.HEIGHT + 2 * QUERY_MARGIN;
+            gathered = false;
+        }
+
+        ArrayList<Collidable> gather() {
+            if (!gathered) {
+                gathered = true;
+                objects.clear();
+                staticIndex.query(sweepX, sweepY, sweepWidth, sweepHeight, objects);
+            }
+            return objects;
+        }
+    }
+
+    private void pressButtons(int env, int playerX, int playerY) {
+        for (int b = 0, slot = env * buttons.length; b < buttons.length; b++, slot++) {
+            Button button = buttons[b];
+            boolean touching = groups[env].isEnabled(button) && button.isCollidingWithSide(playerX, playerY,
+                    PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env]);
+            Runnable change = button.actionFor(pressed[slot], touching);
+            pressed[slot] = touching;
+            if (change instanceof GeometryGroups.Action) {
+                ((GeometryGroups.Action) change).runOn(groups[env], completions[env]);
+            } else if (change == COMPLETE_LEVEL) {
+                completed[env] = true;
+            }
+        }
+    }
+
+    private boolean touchesHazard(int env) {
+        for (TileMap tileMap : tileMaps) {
+            if (groups[env].isEnabled(tileMap) && tileMap.touchesHazard(x[env], y[env],
+                    PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // EchoMovementGame.handleHorizontalMovement: last tick's wall, then the objects nearby, the compiled
+    // platforms and the solid echoes
+    private void moveHorizontally(int env, int initialX, int initialY, int targetX, Nearby nearby) {
+        if (velocityX[env] == 0) {
+            side[env] = null;
+            return;
+        }
+        ArrayList<Collidable> objects = nearby.gather();
+        Collidable hitSide = null;
+        int steps = PlayerPhysics.substeps(velocityX[env]);
+        for (int i = 1; i <= steps; i++) {
+            int testX = PlayerPhysics.substep(initialX, targetX, i, steps);
+
+            boolean collision = false;
+            Collidable cached = side[env];
+            if (cached != null && groups[env].isEnabled(cached) && blocksSideways(env, cached, testX, initialY)) {
+                hitSide = cached;
+                collision = true;
+            }
+            for (int c = 0; c < objects.size() && !collision; c++) {
+                Collidable collidable = objects.get(c);
+                if (groups[env].isEnabled(collidable) && blocksSideways(env, collidable, testX, initialY)) {
+                    hitSide = collidable;
+                    collision = true;
+                }
+            }
+            if (hitSide != null) {
+                if (velocityX[env] > 0) {
+                    x[env] = hitSide.getLeftFaceX(testX, initialY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT) - PlayerPhysics.WIDTH;
+                } else {
+                    x[env] = hitSide.getRightFaceX(testX, initialY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT);
+                }
+                velocityX[env] = 0;
+            }
+            if (!collision && geometry != null) {
+                int record = geometry.findSideHit(testX, initialY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env]);
+                if (record >= 0) {
+                    collision = true;
+                    x[env] = velocityX[env] > 0 ? geometry.x(record) - PlayerPhysics.WIDTH : geometry.x(record) + geometry.width(record);
+                    velocityX[env] = 0;
+                }
+            }
+            if (!collision) {
+                int echo = findEcho(env, testX, initialY, SIDE_HIT);
+                if (echo >= 0) {
+                    collision = true;
+                    x[env] = velocityX[env] > 0 ? echoX[env][echo] - PlayerPhysics.WIDTH : echoX[env][echo] + PlayerPhysics.ECHO_WIDTH;
+                    velocityX[env] = 0;
+                }
+            }
+            if (!collision) {
+                x[env] = testX;
+            } else {
+                break;
+            }
+        }
+        side[env] = hitSide;
+    }
+
+    private boolean blocksSideways(int env, Collidable collidable, int testX, int testY) {
+        return collidable.blocksSideways(testX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env]);
+    }
+
+    // EchoMovementGame.handleVerticalMovement: last tick's support, then the objects nearby, the compiled
+    // platforms and the solid echoes
+    private void moveVertically(int env, int currentX, int initialY, int targetY, Nearby nearby) {
+        int steps = PlayerPhysics.substeps(velocityY[env]);
+        for (int i = 1; i <= steps; i++) {
+            int testY = PlayerPhysics.substep(initialY, targetY, i, steps);
+            if (velocityY[env] >= 0 && isStillSupported(env, currentX, testY)) {
+                break;
+            }
+
+            ArrayList<Collidable> objects = nearby.gather();
+            int hit = NO_HIT;
+            for (int c = 0; c < objects.size() && hit == NO_HIT; c++) {
+                Collidable collidable = objects.get(c);
+                if (groups[env].isEnabled(collidable)) hit = collideVertically(env, collidable, currentX, testY);
+            }
+            if (hit == NO_HIT && geometry != null) {
+                hit = collideWithGeometry(env, currentX, testY);
+            }
+            if (hit == NO_HIT) {
+                hit = collideWithEchoes(env, currentX, testY);
+            }
+            if (hit != LANDED) {
+                y[env] = testY;
+                onGround[env] = false;
+                setSupport(env, null);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static final int NO_HIT = 0, LANDED = 1, CEILING = 2;
+
+    private boolean isStillSupported(int env, int currentX, int testY) {
+        Collidable cached = support[env];
+        if (cached != null) {
+            if (!groups[env].isEnabled(cached)
+                    || !cached.isCollidingWithTop(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env])) {
+                return false;
+            }
+            landOn(env, cached, currentX, testY);
+            return true;
+        }
+        int echo = supportEcho[env] >= 0 ? echoSlot(env, supportEcho[env]) : -1;
+        if (echo < 0) return false;
+        int bottom = testY + PlayerPhysics.HEIGHT, echoTop = echoY[env][echo];
+        if (!echoSolid[env][echo] || echoLayer[env][echo] != layer[env] || currentX >= echoX[env][echo] + PlayerPhysics.ECHO_WIDTH
+                || currentX + PlayerPhysics.WIDTH <= echoX[env][echo] || bottom < echoTop || bottom > echoTop + 10) {
+            return false;
+        }
+        landOnEcho(env, echo);
+        return true;
+    }
+
+    private int collideVertically(int env, Collidable collidable, int currentX, int testY) {
+        if (velocityY[env] >= 0 && collidable.isCollidingWithTop(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env])) {
+            landOn(env, collidable, currentX, testY);
+            return LANDED;
+        }
+        if (velocityY[env] < 0 && collidable.isCollidingWithSide(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env])) {
+            y[env] = collidable.getCeilingY(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT);
+            velocityY[env] = 0;
+            return CEILING;
+        }
+        return NO_HIT;
+    }
+
+    private int collideWithGeometry(int env, int currentX, int testY) {
+        if (velocityY[env] >= 0) {
+            int record = geometry.findLanding(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env]);
+            if (record < 0) return NO_HIT;
+            land(env, geometry.y(record));
+            setSupport(env, null);
+            return LANDED;
+        }
+        int record = geometry.findOverlap(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT, layer[env]);
+        if (record < 0) return NO_HIT;
+        y[env] = geometry.y(record) + geometry.height(record);
+        velocityY[env] = 0;
+        return CEILING;
+    }
+
+    private int collideWithEchoes(int env, int currentX, int testY) {
+        if (velocityY[env] >= 0) {
+            int echo = findEcho(env, currentX, testY, LANDING);
+            if (echo < 0) return NO_HIT;
+            landOnEcho(env, echo);
+            return LANDED;
+        }
+        int echo = findEcho(env, currentX, testY, OVERLAP);
+        if (echo < 0) return NO_HIT;
+        y[env] = echoY[env][echo] + PlayerPhysics.ECHO_HEIGHT;
+        velocityY[env] = 0;
+        return CEILING;
+    }
+
+    private void landOn(int env, Collidable collidable, int currentX, int testY) {
+        land(env, collidable.getSurfaceY(currentX, testY, PlayerPhysics.WIDTH, PlayerPhysics.HEIGHT));
+        setSupport(env, collidable);
+    }
+
+    private void landOnEcho(int env, int echo) {
+        land(env, echoY[env][echo]);
+        support[env] = null;
+        supportEcho[env] = echoId[env][echo];
+    }
+
+    private void land(int env, int surfaceY) {
+        y[env] = surfaceY - PlayerPhysics.HEIGHT;
+        velocityY[env] = 0;
+        onGround[env] = true;
+        canJump[env] = true;
+    }
+
+    private void setSupport(int env, Collidable collidable) {
+        support[env] = collidable;
+        supportEcho[env] = -1;
+    }
+
+    // The environment's echoes as EntitySystems tests them, first slot first; passable echoes are skipped
+    private static final int LANDING = 0, SIDE_HIT = 1, OVERLAP = 2;
+
+    private int findEcho(int env, int objX, int objY, int test) {
+        int right = objX + PlayerPhysics.WIDTH, bottom = objY + PlayerPhysics.HEIGHT, playerLayer = layer[env];
+        for (int echo = 0; echo < echoCount[env]; echo++) {
+            if (!echoSolid[env][echo]) continue;
+            int ex = echoX[env][echo], ey = echoY[env][echo], el = echoLayer[env][echo];
+            int hit;
+            if (test == LANDING) {
+                hit = AabbKernel.landing(ex, ey, PlayerPhysics.ECHO_WIDTH, el, objX, right, bottom, playerLayer);
+            } else if (test == SIDE_HIT) {
+                hit = AabbKernel.sideHit(ex, ey, PlayerPhysics.ECHO_WIDTH, PlayerPhysics.ECHO_HEIGHT, el, objX, objY, right, bottom, playerLayer);
+            } else {
+                hit = AabbKernel.overlap(ex, ey, PlayerPhysics.ECHO_WIDTH, PlayerPhysics.ECHO_HEIGHT, el, objX, objY, right, bottom, playerLayer);
+            }
+            if (hit < 0) return echo;
+        }
+        return -1;
+    }
+
+    private int echoSlot(int env, int id) {
+        for (int echo = 0; echo < echoCount[env]; echo++) {
+            if (echoId[env][echo] == id) return echo;
+        }
+        return -1;
+    }
+
+    // EchoMovementGame.placeEcho: passable where the player stands until they step off it
+    private void placeEcho(int env) {
+        int echo = echoCount[env];
+        if (echoX[env] == null || echo == echoX[env].length) growEchoes(env);
+        echoX[env][echo] = x[env];
+        echoY[env][echo] = y[env];
+        echoLayer[env][echo] = layer[env];
+        echoSolid[env][echo] = false;
+        echoId[env][echo] = nextEchoId[env]++;
+        echoExpiry[env][echo] = timers[env].now() + PlayerPhysics.PLACED_ECHO_LIFETIME + 1;
+        echoCount[env] = echo + 1;
+        placedEcho[env] = echoId[env][echo]; // An earlier echo the player is still inside stays passable
+    }
+
+    private void growEchoes(int env) {
+        int capacity = echoX[env] == null ? ECHO_CAPACITY : echoX[env].length * 2;
+        echoX[env] = echoX[env] == null ? new int[capacity] : Arrays.copyOf(echoX[env], capacity);
+        echoY[env] = echoY[env] == null ? new int[capacity] : Arrays.copyOf(echoY[env], capacity);
+        echoLayer[env] = echoLayer[env] == null ? new int[capacity] : Arrays.copyOf(echoLayer[env], capacity);
+        echoId[env] = echoId[env] == null ? new int[capacity] : Arrays.copyOf(echoId[env], capacity);
+        echoExpiry[env] = echoExpiry[env] == null ? new long[capacity] : Arrays.copyOf(echoExpiry[env], capacity);
+        echoSolid[env] = echoSolid[env] == null ? new boolean[capacity] : Arrays.copyOf(echoSolid[env], capacity);
+    }
+
+    private void solidifyPlacedEcho(int env) {
+        int echo = echoSlot(env, placedEcho[env]);
+        int ex = echoX[env][echo], ey = echoY[env][echo];
+        if (x[env] < ex + PlayerPhysics.ECHO_WIDTH && x[env] + PlayerPhysics.WIDTH > ex
+                && y[env] < ey + PlayerPhysics.ECHO_HEIGHT && y[env] + PlayerPhysics.HEIGHT > ey) {
+            return;
+        }
+        echoSolid[env][echo] = true;
+        placedEcho[env] = -1;
+    }
+
+    // Removes the echoes whose lifetime ran out this tick, filling each gap with the last echo as the game's
+    // echo table does
+    private void expireEchoes(int env) {
+        long now = timers[env].now();
+        for (int echo = echoCount[env] - 1; echo >= 0; echo--) {
+            if (echoExpiry[env][echo] != now) continue;
+            int id = echoId[env][echo], last = --echoCount[env];
+            echoX[env][echo] = echoX[env][last];
+            echoY[env][echo] = echoY[env][last];
+            echoLayer[env][echo] = echoLayer[env][last];
+            echoId[env][echo] = echoId[env][last];
+            echoExpiry[env][echo] = echoExpiry[env][last];
+            echoSolid[env][echo] = echoSolid[env][last];
+            if (supportEcho[env] == id) supportEcho[env] = -1;
+            if (placedEcho[env] == id) placedEcho[env] = -1;
+        }
+    }
+
+    private void observe(int env, float[] observations, int offset) {
+        observations[offset + OBS_X] = x[env] / 1500f;
+        observations[offset + OBS_Y] = y[env] / 600f;
+        observations[offset + OBS_VELOCITY_X] = velocityX[env] / (float) PlayerPhysics.RUN_SPEED;
+        observations[offset + OBS_VELOCITY_Y] = velocityY[env] / (float) -PlayerPhysics.JUMP_FORCE;
+        observations[offset + OBS_ON_GROUND] = onGround[env] ? 1f : 0f;
+        observations[offset + OBS_CAN_JUMP] = canJump[env] ? 1f : 0f;
+        observations[offset + OBS_LAYER] = layer[env];
+        observations[offset + OBS_CLEARED] = groups[env].isEnabled(disappearingGroup) ? 0f : 1f;
+        observations[offset + OBS_ECHOES] = echoCount[env];
+    }
+}
@@ -0,0 +1,62 @@
+// Reports environment steps per second for growing batch sizes and thread counts.
+// Run: java BatchEnvironmentBenchmark [level]
+public class BatchEnvironmentBenchmark {
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        BatchEnvironment.LevelBuilder level = (completeLevel, groups) -> Levels.build(levelNumber, completeLevel, groups);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] sizes = {1, 16, 256, 4096, 65536};
+
+        System.out.printf("level %d, %d cores%n", levelNumber, cores);
+        for (int threads : threadCounts(cores)) {
+            for (int size : sizes) {
+                System.out.printf("  threads %2d, envs %6d: %,14.0f steps/s%n", threads, size, measure(level, size, threads));
+            }
+        }
+    }
+
+    // Powers of two up to the core count, always ending with all cores
+    private static int[] threadCounts(int cores) {
+        int count = 32 - Integer.numberOfLeadingZeros(cores);
+        int[] threads = new int[count];
+        for (int i = 0; i < count; i++) {
+            threads[i] = 1 << i;
+        }
+        threads[count - 1] = cores;
+        return threads;
+    }
+
+    private static double measure(BatchEnvironment.LevelBuilder level, int size, int threads) {
+        BatchEnvironment environment = new BatchEnvironment(level, size, threads);
+        int[] actions = new int[size];
+        float[] observations = new float[size * BatchEnvironment.OBSERVATION_SIZE];
+        float[] rewards = new float[size];
+        boolean[] dones = new boolean[size];
+
+        // Fixed pseudo-random policy so every run does the same work
+        int seed = 12345;
+        long steps = 0;
+        long start = System.nanoTime();
+        long warmupEnd = start + MEASURE_NANOS / 2;
+        long measureStart = 0;
+        while (true) {
+            for (int env = 0; env < size; env++) {
+                seed = seed * 1103515245 + 12345;
+                actions[env] = (seed >>> 16) & (BatchEnvironment.LEFT | BatchEnvironment.RIGHT | BatchEnvironment.JUMP);
+            }
+            environment.step(actions, observations, rewards, dones);
+            long now = System.nanoTime();
+            if (measureStart == 0) {
+                if (now >= warmupEnd) measureStart = now;
+            } else {
+                steps += size;
+                if (now - measureStart >= MEASURE_NANOS) {
+                    environment.shutdown();
+                    return steps * 1e9 / (now - measureStart);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.awt.*;
+
+class Button extends Collidable {
+    private Runnable action;
+    private Runnable releaseAction; // Run when the player steps off, for buttons that only act while held
+    private Color color;
+    private boolean pressed = false;
+
+    public Button(int x, int y, int width, int height, Color color, Runnable action) {
+        this(x, y, width, height, color, action, 0);
+    }
+
+    public Button(int x, int y, int width, int height, Color color, Runnable action, int layer) {
+        this(x, y, width, height, color, action, null, layer);
+    }
+
+    public Button(int x, int y, int width, int height, Color color, Runnable action, Runnable releaseAction, int layer) {
+        super(x, y, width, height, layer);
+        this.color = color;
+        this.action = action;
+        this.releaseAction = releaseAction;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public Runnable getAction() {
+        return action;
+    }
+
+    public Runnable getReleaseAction() {
+        return releaseAction;
+    }
+
+    public void trigger() {
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    // Acts once when the player steps on and once when they step off, so toggles don't flip every tick
+    public void setPressed(boolean touching) {
+        Runnable change = actionFor(pressed, touching);
+        if (change != null) change.run();
+        pressed = touching;
+    }
+
+    // What setPressed runs when the button goes from wasPressed to touching, or null; for simulations that
+    // keep the pressed state of many copies of the level themselves
+    public Runnable actionFor(boolean wasPressed, boolean touching) {
+        if (touching && !wasPressed) return action;
+        if (!touching && wasPressed) return releaseAction;
+        return null;
+    }
+
+    public void reset() {
+        pressed = false;
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
+    {
+        if (this.layer != playerLayer) {
+            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+            g.setColor(opaqueColor);
+        } else {
+            g.setColor(color); // Default color for same layer
+        }
+        g.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        target.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        commands.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    }
+
+    @Override
+    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer);
+    }
+}
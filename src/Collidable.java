@@ -0,0 +1,71 @@
+import java.awt.*;
+
+// Abstract base class for all collidable objects
+abstract class Collidable {
+    protected int x, y, width, height, layer;
+    int group; // GeometryGroups id; only collides and draws while the group is enabled
+
+    public Collidable(int x, int y, int width, int height) {
+        this(x, y, width, height, 0); // Default layer 0
+    }
+
+    public Collidable(int x, int y, int width, int height, int layer) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.layer = layer;
+    }
+
+    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+
+        return objX < x + width &&
+                objX + objWidth > x &&
+                objY + objHeight >= y &&
+                objY + objHeight <= y + 10;
+    }
+
+    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+
+        return objX + objWidth > x &&
+                objX < x + width &&
+                objY + objHeight > y &&
+                objY < y + height;
+    }
+
+    // Whether the object, moving sideways, runs into this collidable rather than standing on it
+    public boolean blocksSideways(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return !isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer)
+                && isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    }
+
+    // Y coordinate the object rests on when standing on this collidable
+    public int getSurfaceY(int objX, int objY, int objWidth, int objHeight) {
+        return y;
+    }
+
+    // Y coordinate the object is pushed down to when bumping its head on this collidable
+    public int getCeilingY(int objX, int objY, int objWidth, int objHeight) {
+        return y + height;
+    }
+
+    // X coordinate of the face the object runs into when moving right
+    public int getLeftFaceX(int objX, int objY, int objWidth, int objHeight) {
+        return x;
+    }
+
+    // X coordinate of the face the object runs into when moving left
+    public int getRightFaceX(int objX, int objY, int objWidth, int objHeight) {
+        return x + width;
+    }
+
+    public abstract void draw(Graphics g, int playerLayer); // Modified draw method
+
+    // Same picture as draw(), written straight into a software frame buffer
+    public abstract void rasterize(FrameBuffer target, int playerLayer);
+
+    // Appends this object's draw ops for the current tick to the render command list
+    public abstract void emit(RenderCommandList commands, int playerLayer);
+}
@@ -0,0 +1,186 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Compares per-object box tests with the AabbKernel column tests, for a swarm of echoes around the player
+// and for a neighbourhood packed with tile-sized boxes, then scanning echoes with the kernel against keeping
+// them in a DynamicAabbTree: a swarm that all moves, where refitting loses to the scan, and a field of placed
+// echoes with a few moving through it, where only the movers are refitted and the tree wins.
+// Run: java CollisionKernelBenchmark
+public class CollisionKernelBenchmark {
+    private static final long MEASURE_NANOS = 500_000_000L;
+    private static final int PLAYER_SIZE = 50;
+
+    static int sink; // Keeps the results alive so the JIT cannot drop the loops
+
+    public static void main(String[] args) {
+        System.out.println("echo swarm, first side hit per query (player clear of every echo)");
+        for (int count : new int[]{16, 256, 4096}) {
+            Random random = new Random(42);
+            ArrayList<Collidable> objects = new ArrayList<>();
+            EntityTable table = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER | EntityTable.SOLID, count);
+            for (int i = 0; i < count; i++) {
+                int x = random.nextInt(1500), y = random.nextInt(600), layer = random.nextInt(2);
+                objects.add(new Platform(x, y, 50, 50, Color.GRAY, layer));
+                int row = table.rowOf(table.add());
+                table.x[row] = x;
+                table.y[row] = y;
+                table.width[row] = table.height[row] = 50;
+                table.layer[row] = layer;
+            }
+            // Above the play area, so every query walks the whole swarm
+            report("objects", count, measure(() -> sink += firstSideHit(objects, 700, -200)));
+            report("kernel", count, measure(() -> sink += AabbKernel.firstSideHit(table.x, table.y, table.width,
+                    table.height, table.layer, table.solid, table.size(), 700, -200, PLAYER_SIZE, PLAYER_SIZE, 0)));
+        }
+
+        System.out.println("dense cell, narrowing a neighbourhood to a query box");
+        for (int count : new int[]{64, 512, 4096}) {
+            Random random = new Random(42);
+            ArrayList<Collidable> objects = new ArrayList<>();
+            int[] x = new int[count], y = new int[count], width = new int[count], height = new int[count];
+            int[] hits = new int[count];
+            for (int i = 0; i < count; i++) {
+                x[i] = random.nextInt(256);
+                y[i] = random.nextInt(256);
+                width[i] = height[i] = 16;
+                objects.add(new Platform(x[i], y[i], 16, 16, Color.BLACK));
+            }
+            ArrayList<Collidable> out = new ArrayList<>();
+            report("objects", count, measure(() -> {
+                out.clear();
+                for (int i = 0; i < objects.size(); i++) {
+                    Collidable collidable = objects.get(i);
+                    if (collidable.x < 160 && collidable.x + collidable.width > 96
+                            && collidable.y < 160 && collidable.y + collidable.height > 96) {
+                        out.add(collidable);
+                    }
+                }
+                sink += out.size();
+            }));
+            report("kernel", count, measure(() -> {
+                out.clear();
+                int found = AabbKernel.overlaps(x, y, width, height, count, 96, 96, 64, 64, hits);
+                for (int i = 0; i < found; i++) {
+                    out.add(objects.get(hits[i]));
+                }
+                sink += out.size();
+            }));
+        }
+
+        System.out.println("moving echo swarm, one tick: every echo steps, then the player's 40 collision queries");
+        for (int count : new int[]{256, 4096, 16384}) {
+            EntityTable table = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER | EntityTable.BODY
+                    | EntityTable.SOLID, count);
+            DynamicAabbTree tree = new DynamicAabbTree(count);
+            Random random = new Random(42);
+            for (int i = 0; i < count; i++) {
+                int entity = table.add();
+                int row = table.rowOf(entity);
+                table.x[row] = random.nextInt(1500 * 8);
+                table.y[row] = random.nextInt(600);
+                table.width[row] = table.height[row] = 50;
+                table.layer[row] = random.nextInt(2);
+                table.body[row] = tree.create(table.x[row], table.y[row], 50, 50, entity);
+            }
+            int[] tick = {0};
+            report("kernel", count, measure(() -> {
+                step(table, tick[0]++);
+                for (int q = 0; q < 40; q++) {
+                    sink += AabbKernel.firstLanding(table.x, table.y, table.width, table.layer, table.solid, table.size(),
+                            700 + q, 300, PLAYER_SIZE, PLAYER_SIZE, 0);
+                }
+            }), "tick");
+            report("tree", count, measure(() -> {
+                step(table, tick[0]++);
+                EntitySystems.moveBodies(table, tree);
+                for (int q = 0; q < 40; q++) {
+                    sink += EntitySystems.findLanding(table, tree, 700 + q, 300, PLAYER_SIZE, PLAYER_SIZE, 0);
+                }
+            }), "tick");
+        }
+
+        System.out.println("placed echo field, one tick: 64 echoes step, then the player's 40 collision queries");
+        for (int count : new int[]{256, 4096, 16384}) {
+            EntityTable table = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER | EntityTable.TRAJECTORY
+                    | EntityTable.BODY | EntityTable.SOLID, count);
+            DynamicAabbTree tree = new DynamicAabbTree(count);
+            Random random = new Random(42);
+            for (int i = 0; i < count; i++) {
+                int entity = table.add();
+                int row = table.rowOf(entity);
+                table.x[row] = random.nextInt(1500 * 8);
+                table.y[row] = random.nextInt(600);
+                table.width[row] = table.height[row] = 50;
+                table.layer[row] = random.nextInt(2);
+                if (i < 64) table.path[row] = new int[0]; // Only marks the row as moving
+                table.body[row] = tree.create(table.x[row], table.y[row], 50, 50, entity);
+            }
+            int[] tick = {0};
+            report("kernel", count, measure(() -> {
+                step(table, tick[0]++);
+                for (int q = 0; q < 40; q++) {
+                    sink += AabbKernel.firstLanding(table.x, table.y, table.width, table.layer, table.solid, table.size(),
+                            700 + q, 300, PLAYER_SIZE, PLAYER_SIZE, 0);
+                }
+            }), "tick");
+            report("tree", count, measure(() -> {
+                step(table, tick[0]++);
+                EntitySystems.moveBodies(table, tree);
+                for (int q = 0; q < 40; q++) {
+                    sink += EntitySystems.findLanding(table, tree, 700 + q, 300, PLAYER_SIZE, PLAYER_SIZE, 0);
+                }
+            }), "tick");
+        }
+    }
+
+    // Echo-like motion: a couple of pixels a tick, turning round every 64 ticks; in a table with trajectories
+    // only the rows with a path move
+    private static void step(EntityTable table, int tick) {
+        int direction = (tick & 64) == 0 ? 2 : -2;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            if (table.path != null && table.path[row] == null) continue;
+            table.x[row] += direction;
+            table.y[row] -= direction >> 1;
+        }
+    }
+
+    // The loop EchoMovementGame ran over echo objects before echoes moved into an entity table
+    private static int firstSideHit(ArrayList<Collidable> objects, int objX, int objY) {
+        for (int i = 0; i < objects.size(); i++) {
+            Collidable collidable = objects.get(i);
+            if (!collidable.isCollidingWithTop(objX, objY, PLAYER_SIZE, PLAYER_SIZE, 0)
+                    && collidable.isCollidingWithSide(objX, objY, PLAYER_SIZE, PLAYER_SIZE, 0)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Nanoseconds per run, after half a second of warmup
+    private static double measure(Runnable query) {
+        long warmupEnd = System.nanoTime() + MEASURE_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            query.run();
+        }
+        long queries = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                query.run();
+            }
+            queries += 1000;
+            now = System.nanoTime();
+        } while (now - start < MEASURE_NANOS);
+        return (double) (now - start) / queries;
+    }
+
+    private static void report(String name, int count, double nanosPerQuery) {
+        report(name, count, nanosPerQuery, "query");
+    }
+
+    private static void report(String name, int count, double nanos, String unit) {
+        System.out.printf("  %-8s %5d boxes: %10.1f ns/%s%n", name, count, nanos, unit);
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+
+// What a moving body was touching at the end of the last tick. These contacts are checked again before any
+// broadphase query, so a body resting on or pushing against the same object costs O(1) per tick.
+final class ContactCache {
+    private static final int NEARBY_MARGIN = 64; // How far the cached neighbourhood reaches past the query box
+
+    private Collidable support;
+    private EntityTable supportTable; // Or the support is an entity, such as an echo
+    private int supportEntity = -1;
+    private int supportX, supportY; // Where the support was when last stood on, to carry the body along
+    private Collidable side;
+
+    // Static objects around the body, reused while its queries stay inside the box and the index is unchanged
+    private final ArrayList<Collidable> nearby = new ArrayList<>();
+    private int nearbyMinX, nearbyMinY, nearbyMaxX, nearbyMaxY;
+    private int nearbyVersion = -1;
+    // The neighbourhood's bounds as columns, so narrowing it to each query is one pass of AabbKernel
+    private int[] nearbyX = new int[16], nearbyY = new int[16], nearbyWidth = new int[16], nearbyHeight = new int[16];
+    private int[] nearbyHits = new int[16];
+
+    public Collidable getSupport() {
+        return support;
+    }
+
+    public void setSupport(Collidable collidable) {
+        support = collidable;
+        supportEntity = -1;
+        if (collidable != null) {
+            supportX = collidable.x;
+            supportY = collidable.y;
+        }
+    }
+
+    public int getSupportEntity() {
+        return supportEntity;
+    }
+
+    public void setSupport(EntityTable table, int entity) {
+        support = null;
+        supportTable = table;
+        supportEntity = entity;
+        int row = table.rowOf(entity);
+        supportX = table.x[row];
+        supportY = table.y[row];
+    }
+
+    // How far the support moved since it was last stood on. A jump bigger than the support itself is a
+    // reset (a quantum platform falling off screen), not motion, so the body is left where it is.
+    public int carryX() {
+        return isCarrying() ? currentSupportX() - supportX : 0;
+    }
+
+    public int carryY() {
+        return isCarrying() ? currentSupportY() - supportY : 0;
+    }
+
+    private boolean isCarrying() {
+        if (support != null) {
+            return Math.abs(support.x - supportX) <= support.width && Math.abs(support.y - supportY) <= support.height;
+        }
+        if (supportEntity < 0) return false;
+        int row = supportTable.rowOf(supportEntity);
+        return Math.abs(supportTable.x[row] - supportX) <= supportTable.width[row]
+                && Math.abs(supportTable.y[row] - supportY) <= supportTable.height[row];
+    }
+
+    private int currentSupportX() {
+        return support != null ? support.x : supportTable.x[supportTable.rowOf(supportEntity)];
+    }
+
+    private int currentSupportY() {
+        return support != null ? support.y : supportTable.y[supportTable.rowOf(supportEntity)];
+    }
+
+    public Collidable getSide() {
+        return side;
+    }
+
+    public void setSide(Collidable collidable) {
+        side = collidable;
+    }
+
+    // Appends the enabled indexed objects overlapping the box, querying the index only when the box leaves the
+    // cached neighbourhood or the index has changed since. Switching groups does not invalidate the cache.
+    public void queryNearby(SpatialGrid index, GeometryGroups groups, int x, int y, int width, int height,
+                            ArrayList<Collidable> out) {
+        if (index.version() != nearbyVersion || x < nearbyMinX || y < nearbyMinY
+                || x + width > nearbyMaxX || y + height > nearbyMaxY) {
+            nearbyMinX = x - NEARBY_MARGIN;
+            nearbyMinY = y - NEARBY_MARGIN;
+            nearbyMaxX = x + width + NEARBY_MARGIN;
+            nearbyMaxY = y + height + NEARBY_MARGIN;
+            nearbyVersion = index.version();
+            nearby.clear();
+            index.query(nearbyMinX, nearbyMinY, nearbyMaxX - nearbyMinX, nearbyMaxY - nearbyMinY, nearby);
+            copyNearbyBounds();
+        }
+        int found = AabbKernel.overlaps(nearbyX, nearbyY, nearbyWidth, nearbyHeight, nearby.size(),
+                x, y, width, height, nearbyHits);
+        for (int i = 0; i < found; i++) {
+            Collidable collidable = nearby.get(nearbyHits[i]);
+            if (groups.isEnabled(collidable)) out.add(collidable);
+        }
+    }
+
+    private void copyNearbyBounds() {
+        int count = nearby.size();
+        if (count > nearbyHits.length) {
+            int capacity = Math.max(count, nearbyHits.length * 2);
+            nearbyX = new int[capacity];
+            nearbyY = new int[capacity];
+            nearbyWidth = new int[capacity];
+            nearbyHeight = new int[capacity];
+            nearbyHits = new int[capacity];
+        }
+        for (int i = 0; i < count; i++) {
+            Collidable collidable = nearby.get(i);
+            nearbyX[i] = collidable.x;
+            nearbyY[i] = collidable.y;
+            nearbyWidth[i] = collidable.width;
+            nearbyHeight[i] = collidable.height;
+        }
+    }
+
+    // Drops any contact with an object that has left the level
+    public void forget(Collidable collidable) {
+        if (support == collidable) support = null;
+        if (side == collidable) side = null;
+    }
+
+    public void forgetEntity(int entity) {
+        if (supportEntity == entity) supportEntity = -1;
+    }
+
+    public void clear() {
+        support = null;
+        supportEntity = -1;
+        side = null;
+        nearby.clear();
+        nearbyVersion = -1;
+    }
+}
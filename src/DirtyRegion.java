@@ -0,0 +1,50 @@
+import javax.swing.*;
+
+// Union of the screen areas that changed since the last repaint, so only that part gets redrawn
+final class DirtyRegion {
+    private static final int MARGIN = 1; // Covers rounding at the edges of arcs and slopes
+
+    private int minX, minY, maxX, maxY;
+    private boolean empty = true;
+    private boolean full = false;
+
+    public void add(int x, int y, int width, int height) {
+        if (full || width <= 0 || height <= 0) return;
+        if (empty) {
+            minX = x;
+            minY = y;
+            maxX = x + width;
+            maxY = y + height;
+            empty = false;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + width);
+            maxY = Math.max(maxY, y + height);
+        }
+    }
+
+    public void add(Collidable collidable) {
+        add(collidable.x, collidable.y, collidable.width, collidable.height);
+    }
+
+    // Used when something changes the whole picture, like a layer switch or a level load
+    public void markAll() {
+        full = true;
+    }
+
+    public boolean isEmpty() {
+        return empty && !full;
+    }
+
+    // Requests a repaint of the accumulated region and starts collecting the next one
+    public void repaint(JComponent component) {
+        if (full) {
+            component.repaint();
+        } else if (!empty) {
+            component.repaint(minX - MARGIN, minY - MARGIN, maxX - minX + 2 * MARGIN, maxY - minY + 2 * MARGIN);
+        }
+        empty = true;
+        full = false;
+    }
+}
@@ -0,0 +1,408 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// Broadphase index for bodies that move, such as echoes and quantum platforms: a bounding volume tree whose
+// leaves hold fattened boxes. A body moving inside its fat box costs nothing to update. One that leaves it
+// gets a new fat box stretched in its direction of travel, and its ancestors are refitted in place; only once
+// it has wandered far from where it was inserted is it reinserted where it now belongs, which is what keeps
+// the tree tight. Besides box overlaps it answers raycasts and swept boxes, for line of sight and camera
+// probes. Nodes live in parallel arrays and are recycled through a free list.
+final class DynamicAabbTree {
+    private static final int MARGIN = 8; // Slack around each body, in pixels
+    private static final int PREDICTION = 4; // Ticks of movement the fat box stretches ahead by
+    private static final int MAX_STRETCH = 64; // So a body teleporting back to its start is not stretched across the level
+    private static final int REINSERT_DISTANCE = 128; // How far a body may drift from its insertion point
+    private static final int NULL = -1;
+
+    // Node columns; minX..maxY is the fat box, for leaves as for branches
+    private int[] minX, minY, maxX, maxY;
+    private int[] parent, left, right, height; // parent doubles as the free list link, height is -1 when free
+    private int[] payload;
+    // The body's exact box, and where it was when last inserted, on leaves
+    private int[] boxX, boxY, boxWidth, boxHeight;
+    private int[] insertedX, insertedY;
+
+    private int root = NULL;
+    private int freeList = NULL;
+    private int nodeCount = 0; // Nodes handed out so far, free or not
+    private int proxyCount = 0;
+
+    private int[] stack = new int[64];
+    private int[] found = new int[16];
+    private float hitFraction = 1f;
+
+    public DynamicAabbTree(int expectedBodies) {
+        allocate(Math.max(16, expectedBodies * 2));
+    }
+
+    private void allocate(int capacity) {
+        minX = new int[capacity];
+        minY = new int[capacity];
+        maxX = new int[capacity];
+        maxY = new int[capacity];
+        parent = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+        payload = new int[capacity];
+        boxX = new int[capacity];
+        boxY = new int[capacity];
+        boxWidth = new int[capacity];
+        boxHeight = new int[capacity];
+        insertedX = new int[capacity];
+        insertedY = new int[capacity];
+    }
+
+    public int size() {
+        return proxyCount;
+    }
+
+    public void clear() {
+        root = NULL;
+        freeList = NULL;
+        nodeCount = 0;
+        proxyCount = 0;
+    }
+
+    // Adds a body and returns its proxy, which stays valid until destroy()
+    public int create(int x, int y, int width, int height, int payload) {
+        int proxy = allocateNode();
+        this.payload[proxy] = payload;
+        setBox(proxy, x, y, width, height);
+        fatten(proxy, 0, 0);
+        insertLeaf(proxy);
+        proxyCount++;
+        return proxy;
+    }
+
+    public void destroy(int proxy) {
+        removeLeaf(proxy);
+        freeNode(proxy);
+        proxyCount--;
+    }
+
+    public int payload(int proxy) {
+        return payload[proxy];
+    }
+
+    // Moves the body to its new box and returns whether the tree had to change; a body still inside its fat
+    // box only has its exact box updated
+    public boolean move(int proxy, int x, int y, int width, int height) {
+        int dx = x - boxX[proxy], dy = y - boxY[proxy];
+        setBox(proxy, x, y, width, height);
+        if (x >= minX[proxy] && y >= minY[proxy] && x + width <= maxX[proxy] && y + height <= maxY[proxy]) {
+            return false;
+        }
+        fatten(proxy, dx, dy);
+        if (Math.abs(x - insertedX[proxy]) + Math.abs(y - insertedY[proxy]) <= REINSERT_DISTANCE) {
+            refitAncestors(proxy);
+        } else {
+            removeLeaf(proxy);
+            insertLeaf(proxy);
+        }
+        return true;
+    }
+
+    // Proxies whose exact box overlaps the box, in no particular order; read them with found(i)
+    public int query(int x, int y, int width, int height) {
+        int queryRight = x + width, queryBottom = y + height;
+        int count = 0;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            if (minX[node] >= queryRight || maxX[node] <= x || minY[node] >= queryBottom || maxY[node] <= y) continue;
+            if (isLeaf(node)) {
+                if (boxX[node] < queryRight && boxX[node] + boxWidth[node] > x
+                        && boxY[node] < queryBottom && boxY[node] + boxHeight[node] > y) {
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = node;
+                }
+            } else {
+                top = push(top, left[node]);
+                top = push(top, right[node]);
+            }
+        }
+        return count;
+    }
+
+    public int found(int index) {
+        return found[index];
+    }
+
+    // Nearest body the segment runs into, or -1; filter (null for all) is asked about each candidate proxy.
+    // How far along the segment the hit is, from 0 to 1, is left in hitFraction().
+    public int raycast(int fromX, int fromY, int toX, int toY, IntPredicate filter) {
+        return sweep(fromX, fromY, 0, 0, toX - fromX, toY - fromY, filter);
+    }
+
+    // First body the box runs into on its way by (dx, dy), or -1; a body it already overlaps is hit at 0.
+    // This is a raycast from the box's corner against every box grown by the moving box's size.
+    public int sweep(int x, int y, int width, int height, int dx, int dy, IntPredicate filter) {
+        hitFraction = 1f;
+        int hit = NULL;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            float entry = nodeEntry(node, x, y, width, height, dx, dy);
+            if (entry > hitFraction || (hit != NULL && entry == hitFraction)) continue;
+            if (isLeaf(node)) {
+                entry = entryFraction(x, y, dx, dy, boxX[node] - width, boxY[node] - height,
+                        boxX[node] + boxWidth[node], boxY[node] + boxHeight[node]);
+                if (entry <= hitFraction && (filter == null || filter.test(node))) {
+                    hitFraction = entry;
+                    hit = node;
+                }
+            } else {
+                // Nearer child on top of the stack, so an early hit prunes the farther one
+                int near = left[node], far = right[node];
+                if (nodeEntry(far, x, y, width, height, dx, dy) < nodeEntry(near, x, y, width, height, dx, dy)) {
+                    near = right[node];
+                    far = left[node];
+                }
+                top = push(top, far);
+                top = push(top, near);
+            }
+        }
+        return hit;
+    }
+
+    public float hitFraction() {
+        return hitFraction;
+    }
+
+    private float nodeEntry(int node, int x, int y, int width, int height, int dx, int dy) {
+        return entryFraction(x, y, dx, dy, minX[node] - width, minY[node] - height, maxX[node], maxY[node]);
+    }
+
+    // Where along (dx, dy) from (x, y) the point enters the box, or infinity if it misses within the segment
+    private static float entryFraction(int x, int y, int dx, int dy, int minX, int minY, int maxX, int maxY) {
+        float near = 0f, far = 1f;
+        if (dx == 0) {
+            if (x < minX || x > maxX) return Float.POSITIVE_INFINITY;
+        } else {
+            float t1 = (float) (minX - x) / dx, t2 = (float) (maxX - x) / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y < minY || y > maxY) return Float.POSITIVE_INFINITY;
+        } else {
+            float t1 = (float) (minY - y) / dy, t2 = (float) (maxY - y) / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Float.POSITIVE_INFINITY;
+    }
+
+    private boolean isLeaf(int node) {
+        return left[node] == NULL;
+    }
+
+    private int push(int top, int node) {
+        if (node == NULL) return top;
+        if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+        stack[top] = node;
+        return top + 1;
+    }
+
+    private void setBox(int proxy, int x, int y, int width, int height) {
+        boxX[proxy] = x;
+        boxY[proxy] = y;
+        boxWidth[proxy] = width;
+        boxHeight[proxy] = height;
+    }
+
+    // Sets the fat box from the exact box, stretched ahead along the last movement
+    private void fatten(int proxy, int dx, int dy) {
+        int stretchX = Math.max(-MAX_STRETCH, Math.min(MAX_STRETCH, dx * PREDICTION));
+        int stretchY = Math.max(-MAX_STRETCH, Math.min(MAX_STRETCH, dy * PREDICTION));
+        minX[proxy] = boxX[proxy] - MARGIN + Math.min(0, stretchX);
+        minY[proxy] = boxY[proxy] - MARGIN + Math.min(0, stretchY);
+        maxX[proxy] = boxX[proxy] + boxWidth[proxy] + MARGIN + Math.max(0, stretchX);
+        maxY[proxy] = boxY[proxy] + boxHeight[proxy] + MARGIN + Math.max(0, stretchY);
+    }
+
+    private int allocateNode() {
+        int node;
+        if (freeList != NULL) {
+            node = freeList;
+            freeList = parent[node];
+        } else {
+            if (nodeCount == minX.length) grow();
+            node = nodeCount++;
+        }
+        parent[node] = left[node] = right[node] = NULL;
+        height[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = minX.length * 2;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+        payload = Arrays.copyOf(payload, capacity);
+        boxX = Arrays.copyOf(boxX, capacity);
+        boxY = Arrays.copyOf(boxY, capacity);
+        boxWidth = Arrays.copyOf(boxWidth, capacity);
+        boxHeight = Arrays.copyOf(boxHeight, capacity);
+        insertedX = Arrays.copyOf(insertedX, capacity);
+        insertedY = Arrays.copyOf(insertedY, capacity);
+    }
+
+    private long perimeter(int node) {
+        return 2L * ((long) maxX[node] - minX[node] + maxY[node] - minY[node]);
+    }
+
+    private long unionPerimeter(int a, int b) {
+        long width = (long) Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        long height = (long) Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        return 2 * (width + height);
+    }
+
+    // Walks down to the sibling that makes the tree's total perimeter grow least, then pairs the leaf with it
+    private void insertLeaf(int leaf) {
+        insertedX[leaf] = boxX[leaf];
+        insertedY[leaf] = boxY[leaf];
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+        int sibling = root;
+        while (!isLeaf(sibling)) {
+            int child1 = left[sibling], child2 = right[sibling];
+            long combined = unionPerimeter(sibling, leaf);
+            long cost = 2 * combined; // Making a new parent of this node and the leaf
+            long inheritance = 2 * (combined - perimeter(sibling)); // What every level below pays for the leaf
+            long cost1 = descendCost(child1, leaf) + inheritance;
+            long cost2 = descendCost(child2, leaf) + inheritance;
+            if (cost < cost1 && cost < cost2) break;
+            sibling = cost1 < cost2 ? child1 : child2;
+        }
+
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        left[newParent] = sibling;
+        right[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        if (oldParent == NULL) {
+            root = newParent;
+        } else if (left[oldParent] == sibling) {
+            left[oldParent] = newParent;
+        } else {
+            right[oldParent] = newParent;
+        }
+        refitFrom(newParent);
+    }
+
+    private long descendCost(int child, int leaf) {
+        long combined = unionPerimeter(child, leaf);
+        return isLeaf(child) ? combined : combined - perimeter(child);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = left[oldParent] == leaf ? right[oldParent] : left[oldParent];
+        if (grandParent == NULL) {
+            root = sibling;
+            parent[sibling] = NULL;
+        } else {
+            if (left[grandParent] == oldParent) {
+                left[grandParent] = sibling;
+            } else {
+                right[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            refitFrom(grandParent);
+        }
+        freeNode(oldParent);
+    }
+
+    // Rebalances and recomputes boxes and heights from the node up to the root
+    private void refitFrom(int node) {
+        while (node != NULL) {
+            node = balance(node);
+            int child1 = left[node], child2 = right[node];
+            height[node] = 1 + Math.max(height[child1], height[child2]);
+            union(node, child1, child2);
+            node = parent[node];
+        }
+    }
+
+    // Recomputes the boxes above a leaf whose fat box changed, stopping where a box comes out the same
+    private void refitAncestors(int leaf) {
+        for (int node = parent[leaf]; node != NULL; node = parent[node]) {
+            int oldMinX = minX[node], oldMinY = minY[node], oldMaxX = maxX[node], oldMaxY = maxY[node];
+            union(node, left[node], right[node]);
+            if (minX[node] == oldMinX && minY[node] == oldMinY && maxX[node] == oldMaxX && maxY[node] == oldMaxY) {
+                return;
+            }
+        }
+    }
+
+    private void union(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    // If one child is two or more levels taller than the other, rotates the taller one up; returns the node
+    // now in this position
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) return a;
+        int b = left[a], c = right[a];
+        int imbalance = height[c] - height[b];
+        if (imbalance > 1) return rotateUp(a, c, b);
+        if (imbalance < -1) return rotateUp(a, b, c);
+        return a;
+    }
+
+    // Puts the tall child in a's place, and a in place of the tall child's shorter child
+    private int rotateUp(int a, int tall, int other) {
+        int f = left[tall], g = right[tall];
+
+        left[tall] = a;
+        parent[tall] = parent[a];
+        parent[a] = tall;
+        if (parent[tall] == NULL) {
+            root = tall;
+        } else if (left[parent[tall]] == a) {
+            left[parent[tall]] = tall;
+        } else {
+            right[parent[tall]] = tall;
+        }
+
+        // The taller grandchild stays under tall, the shorter one moves under a
+        int keep = height[f] > height[g] ? f : g;
+        int move = keep == f ? g : f;
+        right[tall] = keep;
+        left[a] = other;
+        right[a] = move;
+        parent[move] = a;
+        union(a, other, move);
+        height[a] = 1 + Math.max(height[other], height[move]);
+        union(tall, a, keep);
+        height[tall] = 1 + Math.max(height[a], height[keep]);
+        return tall;
+    }
+}
@@ -2,536 +2,714 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-// Abstract base class for all collidable objects
-abstract class Collidable {
-    protected int x, y, width, height, layer;
-
-    public Collidable(int x, int y, int width, int height) {
-        this(x, y, width, height, 0); // Default layer 0
-    }
-
-    public Collidable(int x, int y, int width, int height, int layer) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-        this.layer = layer;
-    }
+public class EchoMovementGame extends JPanel implements KeyListener {
+    private int playerX = PlayerPhysics.START_X, playerY = PlayerPhysics.START_Y;
+    private int velocityY = 0, velocityX = 0;
+    private boolean aPressed = false, dPressed = false;
+    private boolean jumping = false, onGround = true;
+    private final ContactCache contacts = new ContactCache(); // What the player stood on and pushed against last tick
+    private int layer = 0; // Player layer is 0
+    private int level = 1;
+    private boolean layerSwitching, echoesAllowed; // The level's rules, from its template
+
+    // Short names for the rules in PlayerPhysics, which BatchEnvironment shares
+    static final int PLAYER_WIDTH = PlayerPhysics.WIDTH, PLAYER_HEIGHT = PlayerPhysics.HEIGHT;
+    static final int JUMP_FORCE = PlayerPhysics.JUMP_FORCE;
+    static final int GRAVITY = PlayerPhysics.GRAVITY;
+    static final int RUN_SPEED = PlayerPhysics.RUN_SPEED;
+    static final int ECHO_WIDTH = PlayerPhysics.ECHO_WIDTH, ECHO_HEIGHT = PlayerPhysics.ECHO_HEIGHT;
+    private final int MOVEMENT_HISTORY_LENGTH = 180;
+    private final int ECHO_START_DELAY = 0;
+    private boolean canJump = true; // New flag to control jump availability
+    private boolean timeFrozen = false;
 
-    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        if (this.layer != playerLayer) return false;
+    private ArrayList<QuantumEntangledPlatform> quantumPlatforms = new ArrayList<>();
+    private static final int QUANTUM_PLATFORM_PUSH_SPEED = 5;
 
-        return objX < x + width &&
-                objX + objWidth > x &&
-                objY + objHeight >= y &&
-                objY + objHeight <= y + 10;
-    }
+    // Echoes are rows in an entity table rather than objects, so thousands of them stay cheap to move,
+    // collide and draw
+    private final EntityTable echoes = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER
+            | EntityTable.RENDER_STYLE | EntityTable.TRAJECTORY | EntityTable.BODY | EntityTable.SOLID, 64);
+    private static final int ECHO_COLOR = 0xFF646464;
+
+    // Echo Jump mode (EchoJumpGame, or -Dsuperine.echoes=solid): E leaves a still echo where the player stands
+    // instead of a replay. It lets the player through until they have stepped off it, then stays solid until
+    // its deadline. Until then its row is not SOLID, so every collision test skips it.
+    private final boolean solidEchoes;
+    private static final int PLACED_ECHO_LIFETIME = PlayerPhysics.PLACED_ECHO_LIFETIME;
+    private static final int PLACED_ECHO_COLOR = 0xC8646464;
+    private int placedEcho = -1; // Last echo placed, while the player is still inside it
+
+    // Run with -Dsuperine.ghosts=<dir> to save finished runs there and race the fastest as ghosts: drawn like
+    // echoes, never collided with, and streamed from disk as they play. Each level keeps only the runs it shows.
+    private static final int MAX_GHOSTS = 3;
+    private static final int GHOST_COLOR = 0x806496C8;
+    private GhostStore ghostStore; // Null without -Dsuperine.ghosts, after a failure, and for the warm-up world
+    private GhostStore.Recorder ghostRecorder; // The run in progress, until it finishes
+    private final EntityTable ghosts = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER
+            | EntityTable.RENDER_STYLE, MAX_GHOSTS);
+    private final ArrayList<GhostStore.Playback> ghostPlaybacks = new ArrayList<>(); // By row in ghosts
+    private ArrayList<Platform> platforms = new ArrayList<>();
+    private ArrayList<Platform> disappearingPlatforms = new ArrayList<>();
+    private ArrayList<Mountain> mountains = new ArrayList<>();
+    private ArrayList<Terrain> terrain = new ArrayList<>();
+    private Queue<Point> movementHistory = new LinkedList<>();
+    private ArrayList<Button> buttons = new ArrayList<>();
+    private ArrayList<TileMap> tileMaps = new ArrayList<>();
+    private boolean levelComplete = false;
 
-    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        if (this.layer != playerLayer) return false;
+    // Everything the player collides with this tick, gathered once instead of per collision substep
+    private final ArrayList<Collidable> collidables = new ArrayList<>();
+    private static final int NO_HIT = 0, LANDED = 1, CEILING = 2;
+    private boolean collidablesGathered;
+    private int sweepMinX, sweepMinY, sweepMaxX, sweepMaxY;
+
+    // Broadphase over the level's static geometry; echoes and quantum platforms move and are checked separately
+    private final SpatialGrid staticIndex = new SpatialGrid(128, 256);
+    // Compiled platforms read straight from a mapped file, for levels too big for objects; null for most levels
+    private GeometryStore levelGeometry;
+    private static final int VIEW_WIDTH = 1500, VIEW_HEIGHT = 600;
+    // The level's objects that reach into the view, one list per kind in emit order: platforms, disappearing
+    // platforms, buttons, mountains, terrain and tile maps. None of them move, so the lists are only rebuilt
+    // when a level loads and are patched when objects come or go, and a frame's commands grow with what is on
+    // screen rather than with the level.
+    private final ArrayList<ArrayList<Collidable>> inView = new ArrayList<>();
+    private final List<ArrayList<? extends Collidable>> levelObjects = Arrays.asList(platforms, disappearingPlatforms,
+            buttons, mountains, terrain, tileMaps); // The level's lists in inView order
+    private boolean inViewStale = true;
+    // Where each level object sits in its kind's list and in its inView list, so a patch removes it without a
+    // search. Removal moves the list's last object into the gap.
+    private final IdentityHashMap<Collidable, Integer> listPositions = new IdentityHashMap<>();
+    private final IdentityHashMap<Collidable, Integer> inViewPositions = new IdentityHashMap<>();
+    // Broadphase over everything that moves, refitted once a tick. Echo bodies carry their entity id, quantum
+    // platform bodies -1 - their index in quantumPlatforms.
+    private final DynamicAabbTree movingBodies = new DynamicAabbTree(64);
+    private int[] platformBodies = new int[0];
+    private int[] nearbyPlatforms = new int[8]; // Indexes into quantumPlatforms, filled by queryQuantumPlatforms
+    private static final int QUERY_MARGIN = 16;
+
+    // Echo starts and expiries, timed groups and delayed button effects, in simulation ticks
+    private final TimingWheel timers = new TimingWheel();
+
+    // Which of the level's geometry groups are switched on; disabled objects stay in the lists and the index
+    private final GeometryGroups groups = new GeometryGroups(timers);
+
+    private final LevelPreloader levels = new LevelPreloader(this::loadLevel);
+
+    // Run with -Dsuperine.levelFile=<path> to play a level file as level 0 and hot-reload it on every save
+    private static final int FILE_LEVEL = 0;
+    private final Path levelFile = System.getProperty("superine.levelFile") != null
+            ? Paths.get(System.getProperty("superine.levelFile")) : null;
+    private final ConcurrentLinkedQueue<LevelPatch> levelPatches = new ConcurrentLinkedQueue<>();
+    private final HashMap<String, ArrayDeque<Collidable>> objectsByKey = new HashMap<>();
+    private boolean levelKeyed; // Whether the level's objects know their file lines; not when from a snapshot
+
+    // Run with -Dsuperine.renderer=software to rasterize into an int[] instead of drawing through Java2D
+    private final SoftwareRenderer softwareRenderer =
+            "software".equals(System.getProperty("superine.renderer")) ? new SoftwareRenderer(true) : null;
+    private final Consumer<FrameBuffer> sceneRasterizer = this::rasterizeScene;
+
+    // The simulation runs on its own thread and hands each frame to the renderer as a command list
+    private final RenderPipeline renderPipeline = new RenderPipeline();
+    private final ConcurrentLinkedQueue<KeyEvent> inputEvents = new ConcurrentLinkedQueue<>();
+    private RenderCommandList paintingFrame; // Frame being replayed by the current paint, EDT only
+
+    // Lowers drawing quality while paints run over the frame budget; see FrameGovernor for the tiers
+    private final FrameGovernor governor = FrameGovernor.fromProperties();
+    private static final int ECHO_OUTLINE_DISTANCE = 300; // From the player's centre, at the outline tier
+    private BufferedImage offLayerImage; // Off-layer level geometry at the cached tier, EDT only
+    private long offLayerKey;
+
+    // Only the parts of the screen that changed during a tick are repainted
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
+    private final int[] hudValues = new int[8], lastHud = new int[8];
+    private static final int HUD_X = 0, HUD_Y = 0, HUD_WIDTH = 260, HUD_HEIGHT = 170;
+    private static final Font BANNER_FONT = new Font("Arial", Font.BOLD, 30);
+    private static final Font CONTROLS_FONT = new Font("Arial", Font.PLAIN, 20);
+
+    // Run with -Dsuperine.boot=snapshot to restore the start level from a snapshot while the window opens, and
+    // to warm up the physics and render paths in the background. The snapshot is saved on the first such boot
+    // and whenever the level has changed since, in -Dsuperine.snapshot=<dir> or the temporary directory.
+    private static final boolean SNAPSHOT_BOOT = "snapshot".equals(System.getProperty("superine.boot"));
+    private static final int PREWARM_TICKS = 600;
+    private final StartupProfile startup; // Null offscreen
+    private final WorldSnapshot snapshot = SNAPSHOT_BOOT ? new WorldSnapshot(Paths.get(System.getProperty(
+            "superine.snapshot", Paths.get(System.getProperty("java.io.tmpdir"), "superine-snapshot").toString()))) : null;
+    private int snapshotLevel = -1; // The start level, which snapshot boot restores
+    private volatile boolean snapshotRestored;
 
-        return objX + objWidth > x &&
-                objX < x + width &&
-                objY + objHeight > y &&
-                objY < y + height;
+    public EchoMovementGame() {
+        this("solid".equals(System.getProperty("superine.echoes")));
     }
 
-    public abstract void draw(Graphics g, int playerLayer); // Modified draw method
-}
-
-class Platform extends Collidable {
-    private Color color;
-
-    public Platform(int x, int y, int width, int height, Color color) {
-        this(x, y, width, height, color, 0);
-    }
+    protected EchoMovementGame(boolean solidEchoes) {
+        this.solidEchoes = solidEchoes;
+        startup = new StartupProfile(SNAPSHOT_BOOT ? "snapshot" : "cold");
+        ghostStore = openGhostStore();
+        if (levelFile != null) {
+            level = FILE_LEVEL;
+        }
+        if (SNAPSHOT_BOOT) {
+            snapshotLevel = level;
+            levels.preload(level); // initializeLevel below only restores it
+            startPrewarm(level);
+        }
 
-    public Platform(int x, int y, int width, int height, Color color, int layer) {
-        super(x, y, width, height, layer);
-        this.color = color;
-    }
+        JFrame frame = new JFrame("Echo Jump");
+        frame.setSize(VIEW_WIDTH, VIEW_HEIGHT);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.add(this);
+        frame.addKeyListener(this);
+        frame.setVisible(true);
+        startup.mark("window shown");
 
-    @Override
-    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
-    {
-        if (this.layer != playerLayer) {
-            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
-            g.setColor(opaqueColor);
-        } else {
-            g.setColor(color); // Default color for same layer
+        if (levelFile != null) {
+            watchLevelFile();
         }
-        g.fillRect(x, y, width, height);
-    }
-
-    @Override
-    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer) &&
-                objX + 5 < x + width && // Left edge of player is to the left of the platform's right edge
-                objX + objWidth - 5 > x && // Right edge of player is to the right of the platform's left edge
-                objY + objHeight >= y && // Player's bottom edge is at or below the platform's top edge
-                objY + objHeight <= y + 5; // Player's bottom edge is within 5 pixels of the platform's top edge
+        initializeLevel(level);
+        startup.mark("world ready");
+
+        ScheduledExecutorService simulation = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        simulation.scheduleAtFixedRate(this::tick, 0, 16, TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    private static GhostStore openGhostStore() {
+        String directory = System.getProperty("superine.ghosts");
+        return directory != null ? new GhostStore(Paths.get(directory), MAX_GHOSTS) : null;
     }
-}
-
-class Mountain extends Collidable {
-    private Color color;
 
-    public Mountain(int x, int y, int width, int height, Color color) {
-        this(x, y, width, height, color, 0);
+    // A copy of the game that is never shown, stepped by the caller
+    private EchoMovementGame(int level, boolean solidEchoes) {
+        this.solidEchoes = solidEchoes;
+        startup = null;
+        this.level = level;
+        setSize(VIEW_WIDTH, VIEW_HEIGHT);
+        initializeLevel(level);
     }
 
-    public Mountain(int x, int y, int width, int height, Color color, int layer) {
-        super(x, y, width, height, layer);
-        this.color = color;
+    // An offscreen world on the given level, stepped by the caller: for tests that play the real game loop
+    static EchoMovementGame offscreen(int level, boolean solidEchoes) {
+        return new EchoMovementGame(level, solidEchoes);
     }
 
-    @Override
-    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
-    {
-        if (this.layer != playerLayer) {
-            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
-            g.setColor(opaqueColor);
-        } else {
-            g.setColor(color); // Default color for same layer
-        }
-        g.fillRect(x, y, width, height / 2); // Draw upper rectangle
-        g.fillArc(x, y + height / 4, width, height / 2, 180, 180);
+    // Queues a key as the key listener would; the next step() applies it
+    void key(int keyCode, boolean pressed) {
+        prewarmKey(pressed ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED, keyCode);
     }
 
-    @Override
-    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        if (!super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer)) return false;
-
-        // Ensure collision is only checked if object is within the mountain's X bounds
-        if (objX + objWidth < x || objX > x + width) {
-            return false;
-        }
-
-        // Collision with flat part
-        if (objY + objHeight >= y && objY + objHeight <= y + 5) {
-            return true;
-        }
-
-        // Collision with curved part (treat it as a bounding box for simplicity)
-        int centerX = x + width / 2;
-        int centerY = y + height;
-        int radius = width / 2;
-
-        int objCenterX = objX + objWidth / 2;
-        int objBottomY = objY + objHeight;
-
-        double dist = Math.sqrt(Math.pow(objCenterX - centerX, 2) + Math.pow(objBottomY - centerY, 2));
-        return dist <= radius;
+    void step() {
+        gameLoop();
     }
 
-    @Override
-    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    int getPlayerX() {
+        return playerX;
     }
-}
-
-
-class Echo extends Collidable {
-    private ArrayList<Point> moveHistory;
-    private int currentIndex = 0;
-    private int delayCounter;
-    private boolean done = false;
-    private Point lastPosition;
 
-    public Echo(int x, int y, int width, int height, ArrayList<Point> history, int startDelay) {
-        this(x, y, width, height, history, startDelay, 0);
+    int getPlayerY() {
+        return playerY;
     }
 
-    public Echo(int x, int y, int width, int height, ArrayList<Point> history, int startDelay, int layer) {
-        super(x, y, width, height, layer);
-        this.moveHistory = history;
-        this.delayCounter = startDelay;
-        this.lastPosition = new Point(x, y);
+    // Warms up on a background thread, with a copy of the start level of its own and nothing from Swing: steps
+    // it in a headless simulation, draws it offscreen, and saves the snapshot if it was not restored from one
+    private void startPrewarm(int startLevel) {
+        Thread thread = new Thread(() -> {
+            try {
+                levels.get(startLevel); // The restore goes first, and has been tried once this returns
+                LevelTemplate copy = buildLevel(startLevel, () -> { }, new GeometryGroups(new TimingWheel()));
+                prewarmPhysics(copy.hasQuantumPlatforms() ? 1 : startLevel);
+                prewarmRendering(copy);
+                startup.mark("prewarm done");
+                if (!snapshotRestored) {
+                    snapshot.save(startLevel, snapshotSource(startLevel), copy);
+                    startup.mark("snapshot saved");
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace(); // The game just starts cold
+            }
+        }, "prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
     }
 
-    public void update() {
-        if (delayCounter > 0) {
-            delayCounter--;
-            return;
-        }
-
-        if (currentIndex < moveHistory.size()) {
-            lastPosition = new Point(x, y);
-            Point nextPos = moveHistory.get(currentIndex);
-            x = nextPos.x;
-            y = nextPos.y;
-            currentIndex++;
-        } else {
-            done = true;
+    // Plays a scripted run in a batch simulation, which moves and collides the player with the game's rules
+    // and level objects; quantum platforms are not simulated there, so levels with them warm up on level 1
+    private void prewarmPhysics(int level) {
+        BatchEnvironment simulation = new BatchEnvironment(
+                (completeLevel, groups) -> buildLevel(level, completeLevel, groups), 1, 1);
+        int[] actions = new int[1];
+        float[] observations = new float[BatchEnvironment.OBSERVATION_SIZE], rewards = new float[1];
+        boolean[] dones = new boolean[1];
+        for (int tick = 0; tick < PREWARM_TICKS; tick++) {
+            int step = tick % 120;
+            actions[0] = step < 50 ? BatchEnvironment.RIGHT : step < 90 ? BatchEnvironment.LEFT : 0;
+            if (tick % 40 == 20) actions[0] |= BatchEnvironment.JUMP;
+            if (step == 30) actions[0] |= BatchEnvironment.ECHO;
+            simulation.step(actions, observations, rewards, dones);
         }
+        simulation.shutdown();
     }
 
-    public Point getLastPosition() {
-        return lastPosition;
-    }
-
-    @Override
-    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
-    {
-        if (this.layer != playerLayer) {
-            g.setColor(new Color(100, 100, 100, 50)); // Opaque grey for echo when different layer
-        } else {
-            g.setColor(new Color(100, 100, 100)); // Default grey for same layer
+    // Emits the level into command lists and replays them into an offscreen image, with the HUD's fonts, so
+    // the classes, fonts and compiled code the first real paints need are loaded when they run
+    private void prewarmRendering(LevelTemplate template) {
+        BufferedImage image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage offLayer = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Rectangle clip = new Rectangle(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+        RenderCommandList commands = new RenderCommandList();
+        for (int frame = 0; frame < PREWARM_TICKS / 4; frame++) {
+            commands.reset(frame / 30 % 2);
+            commands.fillRect(frame, 100, PLAYER_WIDTH, PLAYER_HEIGHT, 0xFF0000FF);
+            commands.nextBand();
+            commands.setStatic(true);
+            for (Collidable[] objects : Arrays.asList(template.getPlatforms(), template.getDisappearingPlatforms(),
+                    template.getButtons(), template.getMountains(), template.getTerrain(),
+                    template.getQuantumPlatforms(), template.getTileMaps())) {
+                for (Collidable collidable : objects) collidable.emit(commands, commands.getPlayerLayer());
+            }
+            if (template.getGeometry() != null) {
+                template.getGeometry().emit(commands, 0, 0, VIEW_WIDTH, VIEW_HEIGHT, commands.getPlayerLayer());
+            }
+            commands.setStatic(false);
+            commands.sort();
+
+            Graphics2D g = image.createGraphics();
+            commands.drawTo(g, clip, frame % 2 == 0 ? offLayer : null);
+            g.setFont(CONTROLS_FONT);
+            g.drawString("Controls:", 700, 20);
+            g.setFont(BANNER_FONT);
+            g.drawString("Level Complete! Press R to restart", 650, 300);
+            g.dispose();
+            Graphics2D off = offLayer.createGraphics();
+            commands.drawOffLayerTo(off);
+            off.dispose();
         }
-        g.fillRect(x, y, width, height);
     }
 
-    public boolean isDone() {
-        return done;
+    private void prewarmKey(int id, int keyCode) {
+        inputEvents.offer(new KeyEvent(this, id, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED));
     }
 
-    public boolean isActive() {
-        return delayCounter <= 0;
-    }
-
-    public Point getCurrentPosition() {
-        return new Point(x, y);
+    // A failing tick is reported and the loop keeps going, as it did on the Swing Timer
+    private void tick() {
+        try {
+            gameLoop();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
     }
 
-    @Override
-    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer);
+    // The preloader's builds; snapshot boot restores the start level from its snapshot when there is one
+    private LevelTemplate loadLevel(int level) {
+        if (level == snapshotLevel) {
+            try {
+                LevelTemplate restored = snapshot.restore(level, snapshotSource(level), this::completeLevel, groups);
+                if (restored != null) {
+                    snapshotRestored = true;
+                    startup.mark("snapshot restored");
+                    return restored;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Snapshot not restored: " + e.getMessage()); // Built from its source instead
+            }
+        }
+        return buildLevel(level, this::completeLevel, groups);
     }
 
-    @Override
-    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    private LevelTemplate buildLevel(int level, Runnable completeLevel, GeometryGroups groups) {
+        if (level == FILE_LEVEL) {
+            try {
+                return LevelFile.load(levelFile).toTemplate(level, completeLevel, groups);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read level file " + levelFile, e);
+            }
+        }
+        return Levels.build(level, completeLevel, groups);
     }
-}
-
-class Button extends Collidable {
-    private Runnable action;
-    private Color color;
 
-    public Button(int x, int y, int width, int height, Color color, Runnable action) {
-        this(x, y, width, height, color, action, 0);
+    // What a snapshot of the level is taken from: the level file as last saved, or the code building the level
+    private String snapshotSource(int level) throws IOException {
+        if (level == FILE_LEVEL) {
+            return "file " + levelFile.toAbsolutePath() + " " + Files.size(levelFile) + " "
+                    + Files.getLastModifiedTime(levelFile).toMillis();
+        }
+        return "level " + level + " " + Levels.class.getResource("Levels.class").openConnection().getLastModified();
     }
 
-    public Button(int x, int y, int width, int height, Color color, Runnable action, int layer) {
-        super(x, y, width, height, layer);
-        this.color = color;
-        this.action = action;
+    private void initializeLevel(int level) {
+        movementHistory.clear();
+        clearEchoes();
+        timers.clear();
+        startGhostRun(level);
+        LevelTemplate template = levels.get(level);
+        layer = template.getStartLayer();
+        loadLevelObjects(template);
+
+        // Have the next level ready before the player asks for it
+        levels.preload(level % Levels.COUNT + 1);
     }
 
-    public void trigger() {
-        if (action != null) {
-            action.run();
+    // Puts the template's objects in play and indexes them; leaves the player and echoes alone
+    private void loadLevelObjects(LevelTemplate template) {
+        template.restore(platforms, disappearingPlatforms, mountains, terrain, buttons, quantumPlatforms, tileMaps);
+        listPositions.clear();
+        for (List<? extends Collidable> objects : levelObjects) {
+            for (int i = 0; i < objects.size(); i++) listPositions.put(objects.get(i), i);
         }
-    }
-
-    @Override
-    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
-    {
-        if (this.layer != playerLayer) {
-            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
-            g.setColor(opaqueColor);
-        } else {
-            g.setColor(color); // Default color for same layer
+        inViewStale = true;
+        contacts.clear();
+        addPlatformBodies();
+        levelGeometry = template.getGeometry();
+
+        groups.load(template);
+        layerSwitching = template.allowsLayerSwitching();
+        echoesAllowed = template.allowsEchoes();
+        staticIndex.clear(template.getStaticCount());
+        for (int i = 0; i < platforms.size(); i++) addStatic(platforms.get(i));
+        for (int i = 0; i < disappearingPlatforms.size(); i++) addStatic(disappearingPlatforms.get(i));
+        for (int i = 0; i < mountains.size(); i++) addStatic(mountains.get(i));
+        for (int i = 0; i < terrain.size(); i++) addStatic(terrain.get(i));
+        for (int i = 0; i < tileMaps.size(); i++) addStatic(tileMaps.get(i));
+        for (int i = 0; i < buttons.size(); i++) groups.include(buttons.get(i));
+
+        // The deques are kept for the next load of the level, so a restart does not allocate them again
+        for (ArrayDeque<Collidable> objects : objectsByKey.values()) objects.clear();
+        levelKeyed = template.getKeyedCount() > 0;
+        for (int i = 0; i < template.getKeyedCount(); i++) {
+            objectsByKey.computeIfAbsent(template.getKey(i), key -> new ArrayDeque<>()).add(template.getKeyedObject(i));
         }
-        g.fillRect(x, y, width, height);
+        dirtyRegion.markAll();
     }
 
-    @Override
-    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    private void addPlatformBodies() {
+        for (int body : platformBodies) movingBodies.destroy(body);
+        if (platformBodies.length != quantumPlatforms.size()) platformBodies = new int[quantumPlatforms.size()];
+        for (int i = 0; i < platformBodies.length; i++) {
+            QuantumEntangledPlatform platform = quantumPlatforms.get(i);
+            platformBodies[i] = movingBodies.create(platform.x, platform.y, platform.width, platform.height, -1 - i);
+        }
     }
 
-    @Override
-    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
-        return super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer);
+    private void movePlatformBodies() {
+        for (int i = 0; i < platformBodies.length; i++) {
+            QuantumEntangledPlatform platform = quantumPlatforms.get(i);
+            movingBodies.move(platformBodies[i], platform.x, platform.y, platform.width, platform.height);
+        }
     }
-}
-
-class QuantumEntangledPlatform extends Collidable {
-    private Color color;
-    private QuantumEntangledPlatform linkedPlatform;
-    private int originalX, originalY;
-    private int velocityY = 0;
-    private boolean onGround = false;
 
-    public QuantumEntangledPlatform(int x, int y, int width, int height, Color color) {
-        super(x, y, width, height);
-        this.color = color;
-        this.originalX = x;
-        this.originalY = y;
+    // Quantum platforms near enough to the box to touch it or be landed on, in quantumPlatforms order; leaves
+    // their indexes in nearbyPlatforms and returns how many
+    private int queryQuantumPlatforms(int x, int y, int width, int height) {
+        int grow = AabbKernel.LANDING_TOLERANCE + 1;
+        int found = movingBodies.query(x - grow, y - grow, width + 2 * grow, height + 2 * grow);
+        int count = 0;
+        for (int i = 0; i < found; i++) {
+            int payload = movingBodies.payload(movingBodies.found(i));
+            if (payload >= 0) continue; // An echo
+            if (count == nearbyPlatforms.length) nearbyPlatforms = Arrays.copyOf(nearbyPlatforms, count * 2);
+            nearbyPlatforms[count++] = -1 - payload;
+        }
+        Arrays.sort(nearbyPlatforms, 0, count);
+        return count;
     }
 
-    public void linkWith(QuantumEntangledPlatform other) {
-        this.linkedPlatform = other;
-        other.linkedPlatform = this;
+    private void addStatic(Collidable collidable) {
+        staticIndex.insert(collidable);
+        groups.include(collidable);
     }
 
-    public void moveHorizontally(int dx) {
-        this.x += dx;
-        // When pushed, we should check if we're still on ground
-        checkIfStillOnGround = true;
-        if (linkedPlatform != null) {
-            linkedPlatform.x += dx;
-            linkedPlatform.checkIfStillOnGround = true;
+    private void watchLevelFile() {
+        try {
+            new LevelWatcher(levelFile,
+                    edited -> edited.toTemplate(FILE_LEVEL, this::completeLevel, groups),
+                    entry -> entry.createChecked(this::completeLevel, groups), levelPatches::offer).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not watch level file " + levelFile, e);
         }
     }
 
-    private boolean checkIfStillOnGround = false;
-
-    public void update(ArrayList<Collidable> collidables, boolean timeFrozen) {
-        // Check if we're still on ground after being pushed
-        if (checkIfStillOnGround) {
-            boolean stillOnGround = false;
-            for (Collidable collidable : collidables) {
-                if (collidable == this || collidable == linkedPlatform) continue;
-                if (isLandingOn(collidable)) {
-                    stillOnGround = true;
-                    break;
-                }
-            }
-            if (!stillOnGround) {
-                onGround = false;
-            }
-            checkIfStillOnGround = false;
-        }
-
-        // Apply gravity if not on ground
-        if (!onGround && !timeFrozen) {
-            velocityY += 1; // Gravity
-            int newY = y + velocityY;
-            boolean landed = false;
-
-            for (Collidable collidable : collidables) {
-                if (collidable == this || collidable == linkedPlatform) continue;
-
-                // Check if platform lands on something
-                if (velocityY >= 0 && isLandingOn(collidable)) {
-                    newY = collidable.y - height;
-                    velocityY = 0;
-                    onGround = true;
-                    landed = true;
-                    break;
-                }
+    // Applies level file edits made since the last tick, touching only the objects that changed. The watcher has
+    // already built them, so nothing here reads or parses the file.
+    private void applyLevelPatches() {
+        LevelPatch patch;
+        while ((patch = levelPatches.poll()) != null) {
+            levels.put(FILE_LEVEL, patch.getEdited()); // A restart plays the edited file
+            if (level != FILE_LEVEL) continue;
+
+            if (patch.needsReload() || !levelKeyed) {
+                // Entangled pairs span lines, and a level restored from a snapshot has no lines to patch, so
+                // reload every object but keep the player and echoes
+                loadLevelObjects(patch.getEdited());
+                continue;
             }
-
-            if (!landed) {
-                onGround = false;
+            for (String key : patch.getRemovedKeys()) {
+                ArrayDeque<Collidable> objects = objectsByKey.get(key);
+                if (objects == null || objects.isEmpty()) continue;
+                removeLevelObject(objects.poll());
             }
-
-            y = newY;
-
-            // Reset if fallen off screen
-            if (y > 600) {
-                reset();
-                linkedPlatform.reset();
+            List<LevelFile.Entry> added = patch.getAdded();
+            for (int i = 0; i < added.size(); i++) {
+                Collidable collidable = patch.getAddedObjects().get(i);
+                addLevelObject(added.get(i), collidable);
+                objectsByKey.computeIfAbsent(added.get(i).getKey(), key -> new ArrayDeque<>()).add(collidable);
             }
         }
     }
 
-    private boolean isLandingOn(Collidable other) {
-        return x < other.x + other.width &&
-                x + width > other.x &&
-                y + height >= other.y &&
-                y + height <= other.y + 10;
-    }
-
-    public void reset() {
-        this.x = originalX;
-        this.y = originalY;
-        this.velocityY = 0;
-        this.onGround = false;
+    private void removeLevelObject(Collidable collidable) {
+        Integer position = listPositions.remove(collidable);
+        if (position == null) return;
+        int kind = 0;
+        while (levelObjects.get(kind).size() <= position || levelObjects.get(kind).get(position) != collidable) {
+            kind++;
+        }
+        swapRemove(levelObjects.get(kind), position, listPositions);
+        if (!inViewStale) {
+            Integer visible = inViewPositions.remove(collidable);
+            if (visible != null) swapRemove(inView.get(kind), visible, inViewPositions);
+        }
+        if (!(collidable instanceof Button)) staticIndex.remove(collidable);
+        forgetContacts(collidable);
+        dirtyRegion.add(collidable);
     }
 
-    @Override
-    public void draw(Graphics g, int playerLayer) {
-        if (this.layer != playerLayer) {
-            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
-            g.setColor(opaqueColor);
-        } else {
-            g.setColor(color);
+    // Removes the object at position by moving the list's last object into its place
+    private static void swapRemove(ArrayList<? extends Collidable> list, int position,
+                                   IdentityHashMap<Collidable, Integer> positions) {
+        int last = list.size() - 1;
+        if (position != last) {
+            Collidable moved = list.get(last);
+            Collections.swap(list, position, last);
+            positions.put(moved, position);
         }
-        g.fillRect(x, y, width, height);
+        list.remove(last);
     }
-}
 
-public class EchoMovementGame extends JPanel implements KeyListener {
-    private int playerX = 100, playerY = 100;
-    private int velocityY = 0, velocityX = 0;
-    private boolean aPressed = false, dPressed = false;
-    private boolean jumping = false, onGround = true;
-    private Echo currentPlatform = null;
-    private int layer = 0; // Player layer is 0
-    private int level = 1;
-
-    private final int PLAYER_WIDTH = 50, PLAYER_HEIGHT = 50;
-    private final int JUMP_FORCE = -15;
-    private final int ECHO_WIDTH = 50, ECHO_HEIGHT = 50;
-    private final int MOVEMENT_HISTORY_LENGTH = 180;
-    private final int ECHO_START_DELAY = 0;
-    private boolean canJump = true; // New flag to control jump availability
-    private boolean timeFrozen = false;
-
-    private ArrayList<QuantumEntangledPlatform> quantumPlatforms = new ArrayList<>();
-    private static final int QUANTUM_PLATFORM_PUSH_SPEED = 5;
-
-    private ArrayList<Echo> echoes = new ArrayList<>();
-    private ArrayList<Platform> platforms = new ArrayList<>();
-    private ArrayList<Platform> disappearingPlatforms = new ArrayList<>();
-    private ArrayList<Mountain> mountains = new ArrayList<>();
-    private Queue<Point> movementHistory = new LinkedList<>();
-    private ArrayList<Button> buttons = new ArrayList<>();
-    private boolean levelComplete = false;
-
-    public EchoMovementGame() {
-        JFrame frame = new JFrame("Echo Jump");
-        frame.setSize(1500, 600);
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.add(this);
-        frame.addKeyListener(this);
-        frame.setVisible(true);
-
-        initializeLevel(level);
-
-        Timer timer = new Timer(16, e -> gameLoop());
-        timer.start();
+    // Records where an object just appended to the kind's list is, and shows it if it is in view
+    private void track(int kind, Collidable collidable) {
+        listPositions.put(collidable, levelObjects.get(kind).size() - 1);
+        if (!inViewStale && isInView(collidable)) {
+            inViewPositions.put(collidable, inView.get(kind).size());
+            inView.get(kind).add(collidable);
+        }
     }
 
-    private void clearLevel() {
-        movementHistory.clear();
-        mountains.clear();
-        disappearingPlatforms.clear();
-        platforms.clear();
-        echoes.clear();
-        buttons.clear();
-        quantumPlatforms.clear();
+    private void forgetContacts(Collidable collidable) {
+        contacts.forget(collidable);
+        for (int i = 0; i < quantumPlatforms.size(); i++) quantumPlatforms.get(i).forgetContact(collidable);
     }
 
-    private void initializeLevel(int level) {
-        clearLevel();
-        switch (level) {
-            case 1:
-                // Add regular platforms
-                layer = 0;
-                platforms.add(new Platform(50, 150, 200, 20, Color.BLACK));
-                platforms.add(new Platform(100, 400, 200, 20, Color.BLACK));
-                platforms.add(new Platform(900, 400, 200, 20, Color.BLACK));
-                platforms.add(new Platform(50, 120, 20, 200, Color.BLACK));
-
-                // Add disappearing platforms
-                addDisappearingPlatforms();
-
-                // Add buttons with different actions
-                buttons.add(new Button(1050, 350, 40, 40, Color.GREEN, this::clearDisappearingPlatforms));
-                buttons.add(new Button(110, 360, 40, 40, Color.CYAN, this::completeLevel));
+    private void addLevelObject(LevelFile.Entry entry, Collidable collidable) {
+        switch (entry.getKind()) {
+            case "platform":
+                platforms.add((Platform) collidable);
+                track(0, collidable);
                 break;
-            case 2:
-                layer = 0;
-                platforms.add(new Platform(50, 400, 200, 20, Color.BLACK, 0));
-                mountains.add(new Mountain(400, 300, 100, 122, Color.GREEN, 1)); // Layer 1, opaque
-                mountains.add(new Mountain(600, 300, 100, 122, Color.GREEN, 0)); // Layer 0, default opacity
-                platforms.add(new Platform(880, 400, 200, 20, Color.BLACK, 0));
-                buttons.add(new Button(1060, 350, 40, 40, Color.CYAN, this::completeLevel, 0));
+            case "disappearing":
+                disappearingPlatforms.add((Platform) collidable);
+                track(1, collidable);
                 break;
-            case 3:
-                layer = 0;
-                // Starting platform (layer 0)
-                platforms.add(new Platform(50, 200, 200, 20, Color.BLACK, 0));
-                platforms.add(new Platform(50, 400, 200, 20, Color.BLACK, 0));
-                platforms.add(new Platform(50, 150, 20, 200, Color.BLACK));
-
-                platforms.add(new Platform(50, 200, 200, 20, Color.BLACK, 1));
-                platforms.add(new Platform(50, 400, 200, 20, Color.BLACK, 1));
-                platforms.add(new Platform(50, 150, 20, 200, Color.BLACK,1));
-
-                // Gap followed by disappearing platform (layer 1)
-                disappearingPlatforms.add(new Platform(350, 400, 200, 20, Color.RED, 1));
-
-                // Disappearing wall at the end of disappearing platform (layer 1)
-                disappearingPlatforms.add(new Platform(550, 200, 20, 220, Color.RED, 1));
-
-                // Platform behind the wall (layer 0)
-                platforms.add(new Platform(750, 400, 200, 20, Color.BLACK, 0));
-
-                // Button to clear disappearing platforms (layer 0)
-                buttons.add(new Button(900, 360, 40, 40, Color.GREEN, this::clearDisappearingPlatforms, 0));
-
-                // Left side wall (layer 0 + 1)
-                disappearingPlatforms.add(new Platform(160, 200, 20, 220, Color.RED, 0));
-                disappearingPlatforms.add(new Platform(160, 200, 20, 220, Color.RED, 1));
-
-                // Level completion button behind left wall (layer 0)
-                buttons.add(new Button(110, 360, 40, 40, Color.CYAN, this::completeLevel, 0));
+            case "mountain":
+                mountains.add((Mountain) collidable);
+                track(3, collidable);
                 break;
-
-            case 4:
-                layer = 0;
-                // Starting platform
-                platforms.add(new Platform(50, 400, 400, 20, Color.BLACK, 0));
-                //gap so that we can't just push the block across and make the jump
-                platforms.add(new Platform(550, 400, 400, 20, Color.BLACK, 0));
-
-                // High platform with button
-                platforms.add(new Platform(900, 250, 200, 20, Color.BLACK, 0));
-                buttons.add(new Button(1000, 210, 40, 40, Color.CYAN, this::completeLevel, 0));
-
-                // Create quantum entangled platforms
-                QuantumEntangledPlatform p1 = new QuantumEntangledPlatform(950, 0, 50, 50, Color.MAGENTA);
-                QuantumEntangledPlatform p2 = new QuantumEntangledPlatform(300, 0, 50, 50, Color.MAGENTA);
-                p1.linkWith(p2);
-                quantumPlatforms.add(p1);
-                quantumPlatforms.add(p2);
+            case "tilemap":
+                tileMaps.add((TileMap) collidable);
+                track(5, collidable);
+                break;
+            case "button":
+                buttons.add((Button) collidable);
+                track(2, collidable);
+                groups.include(collidable);
+                dirtyRegion.add(collidable);
+                return;
+            default:
+                terrain.add((Terrain) collidable);
+                track(4, collidable);
                 break;
         }
+        addStatic(collidable);
+        dirtyRegion.add(collidable);
     }
 
     private void completeLevel() {
+        if (!levelComplete) dirtyRegion.markAll();
         levelComplete = true;
-    }
-
-    private void addDisappearingPlatforms() {
-        disappearingPlatforms.add(new Platform(300, 400, 600, 20, Color.RED));
-        disappearingPlatforms.add(new Platform(160, 170, 20, 230, Color.RED));
-    }
-
-    private void clearDisappearingPlatforms() {
-        disappearingPlatforms.clear();
+        finishGhostRun();
     }
 
     private void gameLoop() {
+        markMoversDirty(); // Where everything was before this tick
+        if (!timeFrozen) {
+            timers.advance();
+        }
+        processInput();
+        applyLevelPatches();
         killPlayer();
         recordPosition();
         updatePlayerVelocity();
         handleMovement();
+        if (placedEcho >= 0) solidifyPlacedEcho();
+        updateGhosts();
         if (!timeFrozen) {
             updateEchoes();
         }
-        if (level == 4) {
-            for (QuantumEntangledPlatform platform : quantumPlatforms) {
-                platform.update(new ArrayList<>(platforms), timeFrozen);
+        for (QuantumEntangledPlatform platform : quantumPlatforms) {
+            platform.update(staticIndex, levelGeometry, groups, timeFrozen);
+        }
+        movePlatformBodies();
+        markMoversDirty(); // ...and where it is now
+        groups.markChanged(dirtyRegion);
+        markHudDirty();
+        emitRenderCommands();
+        dirtyRegion.repaint(this);
+    }
+
+    // Snapshots everything the renderer needs into the back command list and publishes it
+    private void emitRenderCommands() {
+        RenderCommandList commands = renderPipeline.back();
+        commands.reset(layer);
+        // Each kind of thing gets a band, drawn over the ones before it whatever its colour
+        commands.fillRect(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, 0xFFFF0000);
+        if (inViewStale) cullToView();
+        commands.nextBand();
+        commands.setStatic(true);
+        emitEnabled(inView.get(0), commands);
+        emitEnabled(inView.get(1), commands);
+        commands.setStatic(false);
+        commands.nextBand();
+        if (governor.tier() >= FrameGovernor.ECHO_OUTLINES) {
+            EntitySystems.emitOutlinedBeyond(echoes, commands, layer, playerX + PLAYER_WIDTH / 2,
+                    playerY + PLAYER_HEIGHT / 2, ECHO_OUTLINE_DISTANCE);
+        } else {
+            EntitySystems.emit(echoes, commands, layer);
+        }
+        commands.nextBand();
+        EntitySystems.emit(ghosts, commands, layer);
+        commands.nextBand();
+        commands.setStatic(true);
+        emitEnabled(inView.get(2), commands);
+        emitEnabled(inView.get(3), commands);
+        emitEnabled(inView.get(4), commands);
+        commands.setStatic(false);
+        commands.nextBand();
+        for (int i = 0; i < quantumPlatforms.size(); i++) {
+            if (isInView(quantumPlatforms.get(i))) quantumPlatforms.get(i).emit(commands, layer);
+        }
+        commands.nextBand();
+        commands.setStatic(true);
+        emitEnabled(inView.get(5), commands);
+        if (levelGeometry != null) levelGeometry.emit(commands, 0, 0, VIEW_WIDTH, VIEW_HEIGHT, layer);
+        commands.setStatic(false);
+        commands.sort();
+
+        int[] hud = commands.hud;
+        hud[RenderCommandList.HUD_ON_GROUND] = onGround ? 1 : 0;
+        hud[RenderCommandList.HUD_CAN_JUMP] = canJump ? 1 : 0;
+        hud[RenderCommandList.HUD_JUMPING] = jumping ? 1 : 0;
+        hud[RenderCommandList.HUD_VELOCITY_Y] = velocityY;
+        hud[RenderCommandList.HUD_PLAYER_X] = playerX;
+        hud[RenderCommandList.HUD_PLAYER_Y] = playerY;
+        hud[RenderCommandList.HUD_LAYER] = layer;
+        hud[RenderCommandList.HUD_LEVEL] = level;
+        hud[RenderCommandList.HUD_LEVEL_COMPLETE] = levelComplete ? 1 : 0;
+        renderPipeline.publish();
+        if (startup != null) startup.framePublished();
+    }
+
+    private void emitEnabled(ArrayList<? extends Collidable> objects, RenderCommandList commands) {
+        for (int i = 0; i < objects.size(); i++) {
+            Collidable collidable = objects.get(i);
+            if (groups.isEnabled(collidable)) collidable.emit(commands, layer);
+        }
+    }
+
+    private void cullToView() {
+        inViewPositions.clear();
+        for (int kind = 0; kind < levelObjects.size(); kind++) {
+            if (inView.size() == kind) inView.add(new ArrayList<>());
+            ArrayList<? extends Collidable> objects = levelObjects.get(kind);
+            ArrayList<Collidable> visible = inView.get(kind);
+            visible.clear();
+            for (int i = 0; i < objects.size(); i++) {
+                if (!isInView(objects.get(i))) continue;
+                inViewPositions.put(objects.get(i), visible.size());
+                visible.add(objects.get(i));
             }
         }
-        repaint();
+        inViewStale = false;
+    }
+
+    private static boolean isInView(Collidable collidable) {
+        return collidable.x < VIEW_WIDTH && collidable.x + collidable.width > 0
+                && collidable.y < VIEW_HEIGHT && collidable.y + collidable.height > 0;
+    }
+
+    private void markMoversDirty() {
+        dirtyRegion.add(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT);
+        EntitySystems.markMovingDirty(echoes, dirtyRegion);
+        EntitySystems.markDirty(ghosts, dirtyRegion);
+        for (int i = 0; i < quantumPlatforms.size(); i++) dirtyRegion.add(quantumPlatforms.get(i));
+    }
+
+    // The debug text only needs redrawing when one of the values it shows changed
+    private void markHudDirty() {
+        if (governor.tier() >= FrameGovernor.NO_DEBUG_HUD) return;
+        int[] hud = hudValues;
+        hud[0] = onGround ? 1 : 0;
+        hud[1] = canJump ? 1 : 0;
+        hud[2] = jumping ? 1 : 0;
+        hud[3] = velocityY;
+        hud[4] = playerX;
+        hud[5] = playerY;
+        hud[6] = layer;
+        hud[7] = level;
+        if (!Arrays.equals(hud, lastHud)) {
+            dirtyRegion.add(HUD_X, HUD_Y, HUD_WIDTH, HUD_HEIGHT);
+            System.arraycopy(hud, 0, lastHud, 0, hud.length);
+        }
     }
 
     private void killPlayer() {
-        if (playerY > 600) restart();
+        if (PlayerPhysics.hasFallen(playerY)) {
+            restart();
+            return;
+        }
+        for (TileMap tileMap : tileMaps) {
+            if (groups.isEnabled(tileMap) && tileMap.touchesHazard(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+                restart();
+                return;
+            }
+        }
     }
 
     private void updatePlayerVelocity() {
-        // Apply gravity if in the air
-        if (!onGround) {
-            velocityY += 1; // Gravity
-        }
+        velocityY = PlayerPhysics.fallVelocity(velocityY, onGround);
 
         // Apply jump force if jumping
         if (jumping) {
@@ -540,100 +718,201 @@ public class EchoMovementGame extends JPanel implements KeyListener {
             jumping = false; // Reset jumping flag after applying jump force
         }
 
-        // Handle horizontal movement
-        if (aPressed && !dPressed) {
-            velocityX = -10;
-        } else if (dPressed && !aPressed) {
-            velocityX = 10;
-        } else {
-            velocityX = 0;
-        }
+        velocityX = PlayerPhysics.runVelocity(aPressed, dPressed);
     }
 
     private void handleVerticalMovement(int currentX, int initialY, int targetY) {
-        int steps = Math.abs(velocityY) + 1;
+        int steps = PlayerPhysics.substeps(velocityY);
         boolean landed = false;
 
         for (int i = 1; i <= steps; i++) {
-            float progress = (float) i / steps;
-            int testY = initialY + (int) ((targetY - initialY) * progress);
-
-            // Build a unified list of collidables (platforms, disappearingPlatforms, and echoes)
-            ArrayList<Collidable> collidables = new ArrayList<>();
-            collidables.addAll(platforms);
-            collidables.addAll(disappearingPlatforms);
-            collidables.addAll(echoes);
-            collidables.addAll(mountains);
-            collidables.addAll(quantumPlatforms);
-
-            for (Collidable collidable : collidables) {
-                // Only check top collision when falling
-                if (velocityY >= 0 && collidable.isCollidingWithTop(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
-                    playerY = collidable.y - PLAYER_HEIGHT; // Snap the player to the top
-                    velocityY = 0;
-                    onGround = true;
-                    landed = true;
-                    canJump = true;
-                    // If colliding with an echo, you might want to stick to it:
-                    if (collidable instanceof Echo) {
-                        currentPlatform = (Echo) collidable;
-                    }
-                    break;
-                }
-                // Check for ceiling collisions when jumping upward
-                if (velocityY < 0 && collidable.isCollidingWithSide(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
-                    playerY = collidable.y + collidable.height;
-                    velocityY = 0;
-                    break;
-                }
+            int testY = PlayerPhysics.substep(initialY, targetY, i, steps);
+
+            // Still standing on last tick's support needs no query at all
+            if (velocityY >= 0 && isStillSupported(currentX, testY)) {
+                break;
+            }
+
+            // Level geometry first, then echoes, then quantum platforms, stopping at the first hit
+            gatherCollidables();
+            int hit = NO_HIT;
+            for (int c = 0; c < collidables.size() && hit == NO_HIT; c++) {
+                hit = collideVertically(collidables.get(c), currentX, testY);
+            }
+            if (hit == NO_HIT && levelGeometry != null) {
+                hit = collideVerticallyWithGeometry(currentX, testY);
+            }
+            if (hit == NO_HIT) {
+                hit = collideVerticallyWithEchoes(currentX, testY);
             }
+            for (int q = 0, near = queryQuantumPlatforms(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT);
+                 q < near && hit == NO_HIT; q++) {
+                hit = collideVertically(quantumPlatforms.get(nearbyPlatforms[q]), currentX, testY);
+            }
+            landed = hit == LANDED;
 
             if (!landed) {
                 playerY = testY;
                 onGround = false;
+                contacts.setSupport(null);
             } else {
                 break;
             }
         }
     }
 
+    private boolean isStillSupported(int currentX, int testY) {
+        Collidable support = contacts.getSupport();
+        if (support != null) {
+            if (!groups.isEnabled(support) || !support.isCollidingWithTop(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+                return false;
+            }
+            landOn(support, currentX, testY);
+            return true;
+        }
+        int echo = contacts.getSupportEntity();
+        if (echo < 0 || !echoes.contains(echo)) return false;
+        int row = echoes.rowOf(echo);
+        int bottom = testY + PLAYER_HEIGHT;
+        if (echoes.layer[row] != layer || currentX >= echoes.x[row] + echoes.width[row]
+                || currentX + PLAYER_WIDTH <= echoes.x[row] || bottom < echoes.y[row] || bottom > echoes.y[row] + 10) {
+            return false;
+        }
+        landOnEcho(row);
+        return true;
+    }
+
+    private int collideVertically(Collidable collidable, int currentX, int testY) {
+        // Only check top collision when falling
+        if (velocityY >= 0 && collidable.isCollidingWithTop(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+            landOn(collidable, currentX, testY);
+            return LANDED;
+        }
+        // Check for ceiling collisions when jumping upward
+        if (velocityY < 0 && collidable.isCollidingWithSide(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+            playerY = collidable.getCeilingY(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT);
+            velocityY = 0;
+            return CEILING;
+        }
+        return NO_HIT;
+    }
+
+    private int collideVerticallyWithGeometry(int currentX, int testY) {
+        if (velocityY >= 0) {
+            int record = levelGeometry.findLanding(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+            if (record < 0) return NO_HIT;
+            playerY = levelGeometry.y(record) - PLAYER_HEIGHT;
+            velocityY = 0;
+            onGround = true;
+            canJump = true;
+            contacts.setSupport(null); // Records never move, so there is nothing to ride or recheck
+            return LANDED;
+        }
+        int record = levelGeometry.findOverlap(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+        if (record < 0) return NO_HIT;
+        playerY = levelGeometry.y(record) + levelGeometry.height(record);
+        velocityY = 0;
+        return CEILING;
+    }
+
+    private int collideVerticallyWithEchoes(int currentX, int testY) {
+        if (velocityY >= 0) {
+            int row = EntitySystems.findLanding(echoes, movingBodies, currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+            if (row < 0) return NO_HIT;
+            landOnEcho(row);
+            return LANDED;
+        }
+        int row = EntitySystems.findOverlap(echoes, movingBodies, currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+        if (row < 0) return NO_HIT;
+        playerY = echoes.y[row] + echoes.height[row];
+        velocityY = 0;
+        return CEILING;
+    }
+
+    private void landOn(Collidable support, int currentX, int testY) {
+        playerY = support.getSurfaceY(currentX, testY, PLAYER_WIDTH, PLAYER_HEIGHT) - PLAYER_HEIGHT; // Snap the player to the top
+        velocityY = 0;
+        onGround = true;
+        canJump = true;
+        // Remembered so the next tick checks it first, and carries the player if it moves
+        contacts.setSupport(support);
+    }
+
+    private void landOnEcho(int row) {
+        playerY = echoes.y[row] - PLAYER_HEIGHT;
+        velocityY = 0;
+        onGround = true;
+        canJump = true;
+        contacts.setSupport(echoes, echoes.entityAt(row));
+    }
+
     private void handleHorizontalMovement(int initialX, int initialY, int targetX) {
-        int steps = Math.abs(velocityX) + 1;
+        // Standing still, a side hit would only snap the player to where they already are
+        if (velocityX == 0) {
+            contacts.setSide(null);
+            return;
+        }
+        gatherCollidables();
+
+        Collidable side = null;
+        int steps = PlayerPhysics.substeps(velocityX);
         for (int i = 1; i <= steps; i++) {
-            float progress = (float) i / steps;
-            int testX = initialX + (int) ((targetX - initialX) * progress);
+            int testX = PlayerPhysics.substep(initialX, targetX, i, steps);
 
             boolean collision = false;
-            // Build the unified list of collidables
-            ArrayList<Collidable> collidables = new ArrayList<>();
-            collidables.addAll(platforms);
-            collidables.addAll(disappearingPlatforms);
-            collidables.addAll(echoes);
-            collidables.addAll(mountains);
-
-            for (Collidable collidable : collidables) {
-                // Skip side collision if it's a top landing
-                if (collidable.isCollidingWithTop(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
-                    continue;
+            // Walking into a quantum platform pushes it (and its partner) instead of stopping against it
+            for (int q = 0, near = queryQuantumPlatforms(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT); q < near; q++) {
+                QuantumEntangledPlatform platform = quantumPlatforms.get(nearbyPlatforms[q]);
+                if (platform.isCollidingWithSide(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+                    platform.moveHorizontally(velocityX);
+                    movePlatformBodies(); // The pair moved, and the vertical pass queries them again
+                    collision = true;
+                    break;
                 }
-                if (level == 4) {
-                    for (QuantumEntangledPlatform platform : quantumPlatforms) {
-                        if (platform.isCollidingWithSide(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
-                            platform.moveHorizontally(velocityX);
-                            collision = true;
-                            break;
-                        }
+            }
+            // A wall pushed against last tick is the likeliest thing to be hit again
+            Collidable cached = contacts.getSide();
+            if (!collision && cached != null && groups.isEnabled(cached) && blocksSideways(cached, testX, initialY)) {
+                side = cached;
+                collision = true;
+            }
+            for (int c = 0; c < collidables.size() && !collision; c++) {
+                Collidable collidable = collidables.get(c);
+                if (blocksSideways(collidable, testX, initialY)) {
+                    side = collidable;
+                    collision = true;
+                }
+            }
+            if (side != null) {
+                if (velocityX > 0) {
+                    playerX = side.getLeftFaceX(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT) - PLAYER_WIDTH;
+                } else if (velocityX < 0) {
+                    playerX = side.getRightFaceX(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT);
+                }
+                velocityX = 0;
+            }
+            if (!collision && levelGeometry != null) {
+                int record = levelGeometry.findSideHit(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+                if (record >= 0) {
+                    collision = true;
+                    if (velocityX > 0) {
+                        playerX = levelGeometry.x(record) - PLAYER_WIDTH;
+                    } else {
+                        playerX = levelGeometry.x(record) + levelGeometry.width(record);
                     }
+                    velocityX = 0;
                 }
-                if (collidable.isCollidingWithSide(testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
+            }
+            if (!collision) {
+                int row = EntitySystems.findSideHit(echoes, movingBodies, testX, initialY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
+                if (row >= 0) {
                     collision = true;
                     if (velocityX > 0) {
-                        playerX = collidable.x - PLAYER_WIDTH;
-                    } else if (velocityX < 0) {
-                        playerX = collidable.x + collidable.width;
+                        playerX = echoes.x[row] - PLAYER_WIDTH;
+                    } else {
+                        playerX = echoes.x[row] + echoes.width[row];
                     }
                     velocityX = 0;
-                    break;
                 }
             }
             if (!collision) {
@@ -642,19 +921,22 @@ public class EchoMovementGame extends JPanel implements KeyListener {
                 break;
             }
         }
+        contacts.setSide(side);
+    }
+
+    private boolean blocksSideways(Collidable collidable, int testX, int testY) {
+        return collidable.blocksSideways(testX, testY, PLAYER_WIDTH, PLAYER_HEIGHT, layer);
     }
 
     private void handleMovement() {
         int initialX = playerX;
         int initialY = playerY;
 
-        if (currentPlatform != null && currentPlatform.isActive() && !timeFrozen) {
-            Point currentPos = currentPlatform.getCurrentPosition();
-            Point lastPos = currentPlatform.getLastPosition();
-            int deltaX = currentPos.x - lastPos.x;
-            int deltaY = currentPos.y - lastPos.y;
-            initialX += deltaX;
-            initialY += deltaY;
+        // Ride whatever the player is standing on: echoes, quantum platforms, anything that moved
+        int carryX = contacts.carryX(), carryY = contacts.carryY();
+        if (carryX != 0 || carryY != 0) {
+            initialX += carryX;
+            initialY += carryY;
             playerX = initialX;
             playerY = initialY;
         }
@@ -663,31 +945,195 @@ public class EchoMovementGame extends JPanel implements KeyListener {
         int targetY = initialY + velocityY;
 
         checkButtonCollisions(initialX, initialY);
+        // Gathered on first use, after the buttons, which may have changed the level
+        collidablesGathered = false;
+        sweepMinX = Math.min(initialX, targetX);
+        sweepMinY = Math.min(initialY, targetY);
+        sweepMaxX = Math.max(initialX, targetX) + PLAYER_WIDTH;
+        sweepMaxY = Math.max(initialY, targetY) + PLAYER_HEIGHT;
 
         handleHorizontalMovement(initialX, initialY, targetX);
         handleVerticalMovement(playerX, initialY, targetY);
     }
 
+    // Builds the unified lists of collidables for this tick's collision pass from everything near the
+    // area the player sweeps through. Only runs when the cached contacts could not settle the tick.
+    private void gatherCollidables() {
+        if (collidablesGathered) return;
+        collidablesGathered = true;
+        collidables.clear();
+        contacts.queryNearby(staticIndex, groups, sweepMinX - QUERY_MARGIN, sweepMinY - QUERY_MARGIN,
+                sweepMaxX - sweepMinX + 2 * QUERY_MARGIN, sweepMaxY - sweepMinY + 2 * QUERY_MARGIN, collidables);
+    }
+
     private void checkButtonCollisions(int currentX, int currentY) {
-        for (Button button : buttons) {
-            if (button.isCollidingWithSide(currentX, currentY, PLAYER_WIDTH, PLAYER_HEIGHT, layer)) {
-                button.trigger();
-            }
+        for (int i = 0; i < buttons.size(); i++) {
+            Button button = buttons.get(i);
+            button.setPressed(groups.isEnabled(button)
+                    && button.isCollidingWithSide(currentX, currentY, PLAYER_WIDTH, PLAYER_HEIGHT, layer));
         }
     }
 
+    // Moves every echo a step along its path; starting and removing them is left to the timers
     private void updateEchoes() {
-        Iterator<Echo> iter = echoes.iterator();
-        while (iter.hasNext()) {
-            Echo echo = iter.next();
-            echo.update();
-            if (echo.isDone()) {
-                if (echo == currentPlatform) {
-                    currentPlatform = null;
+        EntitySystems.playback(echoes);
+        EntitySystems.moveBodies(echoes, movingBodies);
+    }
+
+    // Echoes wait where they were made, then replay the recorded path
+    private void spawnEcho(int startDelay) {
+        int echo = echoes.add();
+        int row = echoes.rowOf(echo);
+        echoes.x[row] = playerX;
+        echoes.y[row] = playerY;
+        echoes.width[row] = ECHO_WIDTH;
+        echoes.height[row] = ECHO_HEIGHT;
+        echoes.layer[row] = layer;
+        echoes.argb[row] = ECHO_COLOR;
+        int[] path = new int[movementHistory.size() * 2];
+        int i = 0;
+        for (Point point : movementHistory) {
+            path[i++] = point.x;
+            path[i++] = point.y;
+        }
+        echoes.path[row] = path;
+        echoes.body[row] = movingBodies.create(playerX, playerY, ECHO_WIDTH, ECHO_HEIGHT, echo);
+        if (startDelay <= 0) {
+            startEcho(echo);
+        } else {
+            timers.schedule(startDelay, () -> startEcho(echo));
+        }
+    }
+
+    // Once it has played its whole path the echo stays where it ended for a tick, then goes
+    private void startEcho(int echo) {
+        echoes.step[echoes.rowOf(echo)] = 0;
+        timers.schedule(echoes.path[echoes.rowOf(echo)].length / 2 + 1, () -> {
+            movingBodies.destroy(echoes.body[echoes.rowOf(echo)]);
+            echoes.remove(echo);
+            contacts.forgetEntity(echo);
+        });
+    }
+
+    // Placed echoes have no path, so they never move; they only need repainting when they appear, turn solid
+    // and go
+    private void placeEcho() {
+        int echo = echoes.add();
+        int row = echoes.rowOf(echo);
+        echoes.x[row] = playerX;
+        echoes.y[row] = playerY;
+        echoes.width[row] = ECHO_WIDTH;
+        echoes.height[row] = ECHO_HEIGHT;
+        echoes.layer[row] = layer;
+        echoes.argb[row] = PLACED_ECHO_COLOR;
+        echoes.solid[row] = 0;
+        echoes.body[row] = movingBodies.create(playerX, playerY, ECHO_WIDTH, ECHO_HEIGHT, echo);
+        dirtyRegion.add(playerX, playerY, ECHO_WIDTH, ECHO_HEIGHT);
+        placedEcho = echo; // An earlier echo the player is still inside stays passable, as in Echo Jump
+        timers.schedule(PLACED_ECHO_LIFETIME + 1, () -> {
+            int current = echoes.rowOf(echo);
+            dirtyRegion.add(echoes.x[current], echoes.y[current], ECHO_WIDTH, ECHO_HEIGHT);
+            movingBodies.destroy(echoes.body[current]);
+            echoes.remove(echo);
+            contacts.forgetEntity(echo);
+            if (placedEcho == echo) placedEcho = -1;
+        });
+    }
+
+    private void solidifyPlacedEcho() {
+        int row = echoes.rowOf(placedEcho);
+        int x = echoes.x[row], y = echoes.y[row];
+        if (playerX < x + ECHO_WIDTH && playerX + PLAYER_WIDTH > x && playerY < y + ECHO_HEIGHT && playerY + PLAYER_HEIGHT > y) {
+            return;
+        }
+        echoes.solid[row] = -1;
+        dirtyRegion.add(x, y, ECHO_WIDTH, ECHO_HEIGHT);
+        placedEcho = -1;
+    }
+
+    private void clearEchoes() {
+        for (int row = 0; row < echoes.size(); row++) movingBodies.destroy(echoes.body[row]);
+        echoes.clear();
+        placedEcho = -1;
+    }
+
+    // Drops the run in progress unsaved and starts recording the next, with the level's fastest saved runs
+    // playing alongside it
+    private void startGhostRun(int level) {
+        clearGhosts();
+        if (ghostStore == null) return;
+        try {
+            if (ghostRecorder != null) ghostRecorder.abandon();
+            ghostRecorder = ghostStore.record(level);
+            for (GhostStore.Run run : ghostStore.fastestRuns(level, MAX_GHOSTS)) {
+                int row = ghosts.rowOf(ghosts.add());
+                ghosts.width[row] = PLAYER_WIDTH;
+                ghosts.height[row] = PLAYER_HEIGHT;
+                ghosts.argb[row] = GHOST_COLOR;
+                ghostPlaybacks.add(ghostStore.play(run));
+            }
+        } catch (IOException e) {
+            disableGhosts(e);
+        }
+    }
+
+    private void finishGhostRun() {
+        if (ghostRecorder == null) return;
+        try {
+            ghostRecorder.finish();
+            ghostRecorder = null;
+        } catch (IOException e) {
+            disableGhosts(e);
+        }
+    }
+
+    // Records where the player is this tick and moves every ghost to the same tick of its run
+    private void updateGhosts() {
+        if (ghostStore == null) return;
+        try {
+            if (ghostRecorder != null) ghostRecorder.append(playerX, playerY, layer);
+            for (int row = ghosts.size() - 1; row >= 0; row--) {
+                GhostStore.Playback playback = ghostPlaybacks.get(row);
+                if (!playback.advance()) {
+                    removeGhost(row);
+                    continue;
                 }
-                iter.remove();
+                ghosts.x[row] = playback.x();
+                ghosts.y[row] = playback.y();
+                ghosts.layer[row] = playback.layer();
+            }
+        } catch (IOException e) {
+            disableGhosts(e);
+        }
+    }
+
+    // The table fills the row with its last one, and the playbacks follow suit
+    private void removeGhost(int row) throws IOException {
+        int last = ghosts.size() - 1;
+        ghostPlaybacks.get(row).close();
+        ghostPlaybacks.set(row, ghostPlaybacks.get(last));
+        ghostPlaybacks.remove(last);
+        ghosts.remove(ghosts.entityAt(row));
+    }
+
+    private void clearGhosts() {
+        for (GhostStore.Playback playback : ghostPlaybacks) {
+            try {
+                playback.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
+        ghostPlaybacks.clear();
+        ghosts.clear();
+    }
+
+    // A broken ghost directory shouldn't stop the game; it carries on without ghosts
+    private void disableGhosts(IOException e) {
+        e.printStackTrace();
+        ghostStore = null;
+        ghostRecorder = null;
+        clearGhosts();
     }
 
     private void recordPosition() {
@@ -698,59 +1144,98 @@ public class EchoMovementGame extends JPanel implements KeyListener {
     }
 
     private void restart() {
-        playerX = 100;
-        playerY = 100;
+        playerX = PlayerPhysics.START_X;
+        playerY = PlayerPhysics.START_Y;
         velocityY = 0;
-        currentPlatform = null;
         levelComplete = false;
         timeFrozen = false;
-        currentPlatform = null;
-        for (QuantumEntangledPlatform platform : quantumPlatforms) {
-            platform.reset();
-        }
         initializeLevel(level);
     }
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, getWidth(), getHeight());
-
-        // Draw player
-        g.setColor(Color.RED);
-        g.fillRect(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT);
-
-        // Draw all game objects, passing player's layer
-        platforms.forEach(platform -> platform.draw(g, layer));
-        disappearingPlatforms.forEach(platform -> platform.draw(g, layer));
-        echoes.forEach(echo -> echo.draw(g, layer));
-        buttons.forEach(button -> button.draw(g, layer));
-        mountains.forEach(mountain -> mountain.draw(g, layer));
-        quantumPlatforms.forEach(platform -> platform.draw(g, layer));
+        renderPipeline.paint(frame -> paintFrame(g, frame));
+    }
 
-        g.setColor(Color.red);
-        g.drawString("onground: " + onGround, 20, 20);
-        g.drawString("canJump: " + canJump, 20, 40);
-        g.drawString("jumping: " + jumping, 20, 60);
-        g.drawString("y velocity: " + velocityY, 20, 80);
-        g.drawString("player x: " + playerX, 20, 100);
-        g.drawString("player y: " + playerY, 20, 120);
-        g.drawString("layer: " + layer, 20, 140);
-        g.drawString("level: " + level, 20, 160);
+    // Draws a published frame; never touches the simulation's own state
+    private void paintFrame(Graphics g, RenderCommandList frame) {
+        long start = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        int tier = governor.tier();
+
+        if (softwareRenderer != null) {
+            // Rasterizing has no per-object Color cost, so the cached tier changes nothing here
+            paintingFrame = frame;
+            softwareRenderer.render(getWidth(), getHeight(), clip.x, clip.y, clip.width, clip.height, sceneRasterizer);
+            Graphics hud = softwareRenderer.getImage().createGraphics();
+            hud.setClip(clip);
+            drawHud(hud, frame.hud, tier);
+            hud.dispose();
+            softwareRenderer.blit(g);
+        } else {
+            // Only the dirty region needs clearing and redrawing; Swing has already clipped g to it
+            g.setColor(Color.WHITE);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            frame.drawTo(g, clip, tier >= FrameGovernor.CACHED_OFF_LAYER ? offLayerImage(frame) : null);
+            drawHud(g, frame.hud, tier);
+        }
+        if (startup == null) return; // The warm-up world's paints say nothing about the screen's
+        startup.framePainted();
+        if (governor.framePainted(System.nanoTime() - start)) repaint(); // Nothing drawn at the old tier stays
+    }
 
+    // The frame's off-layer geometry as one image, redrawn only when that geometry or the window changed
+    private BufferedImage offLayerImage(RenderCommandList frame) {
+        long key = frame.offLayerKey();
+        if (offLayerImage == null || offLayerImage.getWidth() != getWidth() || offLayerImage.getHeight() != getHeight()) {
+            offLayerImage = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()),
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+        } else if (key == offLayerKey) {
+            return offLayerImage;
+        }
+        Graphics2D g = offLayerImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, offLayerImage.getWidth(), offLayerImage.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        frame.drawOffLayerTo(g);
+        g.dispose();
+        offLayerKey = key;
+        return offLayerImage;
+    }
+
+    // Software backend counterpart of drawTo above; runs once per horizontal band
+    private void rasterizeScene(FrameBuffer target) {
+        target.clear(0xFFFFFFFF);
+        paintingFrame.rasterizeTo(target);
+    }
+
+    private void drawHud(Graphics g, int[] hud, int tier) {
+        if (tier < FrameGovernor.NO_DEBUG_HUD) drawDebugValues(g, hud);
         drawControlsOverlay(g); // Call the new method to draw controls
 
-        if (levelComplete) {
-            g.setFont(new Font("Arial", Font.BOLD, 30));
+        if (hud[RenderCommandList.HUD_LEVEL_COMPLETE] != 0) {
+            g.setFont(BANNER_FONT);
             g.setColor(Color.GREEN);
             g.drawString("Level Complete! Press R to restart", getWidth() / 2 - 100, getHeight() / 2);
         }
     }
 
+    private void drawDebugValues(Graphics g, int[] hud) {
+        g.setColor(Color.red);
+        g.drawString("onground: " + (hud[RenderCommandList.HUD_ON_GROUND] != 0), 20, 20);
+        g.drawString("canJump: " + (hud[RenderCommandList.HUD_CAN_JUMP] != 0), 20, 40);
+        g.drawString("jumping: " + (hud[RenderCommandList.HUD_JUMPING] != 0), 20, 60);
+        g.drawString("y velocity: " + hud[RenderCommandList.HUD_VELOCITY_Y], 20, 80);
+        g.drawString("player x: " + hud[RenderCommandList.HUD_PLAYER_X], 20, 100);
+        g.drawString("player y: " + hud[RenderCommandList.HUD_PLAYER_Y], 20, 120);
+        g.drawString("layer: " + hud[RenderCommandList.HUD_LAYER], 20, 140);
+        g.drawString("level: " + hud[RenderCommandList.HUD_LEVEL], 20, 160);
+    }
+
     private void drawControlsOverlay(Graphics g) {
         g.setColor(Color.BLACK); // Or any color that stands out against your background
-        g.setFont(new Font("Arial", Font.PLAIN, 20)); // Choose a suitable font and size
+        g.setFont(CONTROLS_FONT);
         int x = getWidth() - 800; // X position from the right edge
         int y = 20; // Starting Y position
         int lineHeight = 22; // Spacing between lines
@@ -772,23 +1257,40 @@ public class EchoMovementGame extends JPanel implements KeyListener {
         g.drawString("T: Toggle Time Freeze", x, y);
     }
 
+    // Key events arrive on the EDT and are queued for the simulation thread, which owns all game state
     @Override
     public void keyPressed(KeyEvent e) {
-        switch (e.getKeyCode()) {
+        inputEvents.offer(e);
+    }
+
+    private void processInput() {
+        KeyEvent e;
+        while ((e = inputEvents.poll()) != null) {
+            if (e.getID() == KeyEvent.KEY_PRESSED) {
+                applyKeyPressed(e.getKeyCode());
+            } else {
+                applyKeyReleased(e.getKeyCode());
+            }
+        }
+    }
+
+    private void applyKeyPressed(int keyCode) {
+        switch (keyCode) {
             case KeyEvent.VK_SPACE:
                 if (onGround && canJump) {
                     velocityY = JUMP_FORCE; // Apply jump force
                     jumping = true;
                     canJump = false; // Prevent double jumping
-                    currentPlatform = null;
+                    contacts.setSupport(null); // Take off from where the support is now, without its motion
                 }
                 break;
             case KeyEvent.VK_E:
-                if (level == 4) return;
-                ArrayList<Point> historyClone = new ArrayList<>(movementHistory);
-                Echo newEcho = new Echo(playerX, playerY, ECHO_WIDTH, ECHO_HEIGHT,
-                        historyClone, ECHO_START_DELAY, layer);
-                echoes.add(newEcho);
+                if (!echoesAllowed) return;
+                if (solidEchoes) {
+                    placeEcho();
+                } else {
+                    spawnEcho(ECHO_START_DELAY);
+                }
                 break;
             case KeyEvent.VK_D:
                 dPressed = true;
@@ -800,11 +1302,11 @@ public class EchoMovementGame extends JPanel implements KeyListener {
                 restart();
                 break;
             case KeyEvent.VK_UP:
-                if (layerChangingEnabled())
-                    layer = layer == 0 ? 1 : 0; //the reason I have this duplicate bit is so I can easily add more layers (for example 0, 1, 2 -> rolls back over to 0). Also nice not at all confusing ternary, will be replaced with a simple if statement if more layers are added
+                if (layerSwitching)
+                    switchLayer(PlayerPhysics.otherLayer(layer)); //the reason I have this duplicate bit is so I can easily add more layers (for example 0, 1, 2 -> rolls back over to 0)
                 break;
             case KeyEvent.VK_DOWN:
-                if (layerChangingEnabled()) layer = layer == 0 ? 1 : 0;
+                if (layerSwitching) switchLayer(PlayerPhysics.otherLayer(layer));
                 break;
             case KeyEvent.VK_T: {
                 timeFrozen = !timeFrozen;
@@ -826,24 +1328,35 @@ public class EchoMovementGame extends JPanel implements KeyListener {
                 level = 4;
                 restart();
                 break;
+            case KeyEvent.VK_5:
+                level = 5;
+                restart();
+                break;
         }
     }
 
-    private boolean layerChangingEnabled() {
-        return level == 2 || level == 3;
+    // Every object changes opacity on a layer switch, so the whole screen is repainted
+    private void switchLayer(int newLayer) {
+        layer = newLayer;
+        dirtyRegion.markAll();
     }
 
     @Override
     public void keyReleased(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_D) dPressed = false;
-        if (e.getKeyCode() == KeyEvent.VK_A) aPressed = false;
+        inputEvents.offer(e);
+    }
+
+    private void applyKeyReleased(int keyCode) {
+        if (keyCode == KeyEvent.VK_D) dPressed = false;
+        if (keyCode == KeyEvent.VK_A) aPressed = false;
     }
 
     @Override
     public void keyTyped(KeyEvent e) {
     }
 
+    // Swing components are only made and touched on the event dispatch thread
     public static void main(String[] args) {
-        new EchoMovementGame();
+        SwingUtilities.invokeLater(EchoMovementGame::new);
     }
 }
\ No newline at end of file
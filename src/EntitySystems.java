@@ -0,0 +1,152 @@
+// The per-tick work on entity tables. Each system is one linear pass over a table's columns, with no
+// virtual calls or per-entity objects, so the loops stay in cache and the JIT can unroll them.
+final class EntitySystems {
+    private EntitySystems() {
+    }
+
+    // Moves every started entity to the next point of its path; entities at the end of their path stay put
+    public static void playback(EntityTable table) {
+        int[] x = table.x, y = table.y, step = table.step;
+        int[][] path = table.path;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            int next = step[row];
+            if (next < 0 || 2 * next >= path[row].length) continue;
+            x[row] = path[row][2 * next];
+            y[row] = path[row][2 * next + 1];
+            step[row] = next + 1;
+        }
+    }
+
+    // Keeps every entity's proxy in the tree on the entity's current bounds. In a table with trajectories only
+    // the rows with a path move, so the rest are skipped.
+    public static void moveBodies(EntityTable table, DynamicAabbTree tree) {
+        int[] x = table.x, y = table.y, width = table.width, height = table.height, body = table.body;
+        int[][] path = table.path;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            if (path != null && path[row] == null) continue;
+            tree.move(body[row], x[row], y[row], width[row], height[row]);
+        }
+    }
+
+    // The find methods return the first matching row, the same row whether they scan the table or look the
+    // candidates up in a tree holding the table's bodies. A table that fits in one kernel block is scanned,
+    // which beats walking the tree; the tree's other bodies have negative payloads and are skipped. The table
+    // needs the SOLID component, and rows that are not solid never match.
+
+    // First row the box would stand on, or -1; the same test as Collidable.isCollidingWithTop
+    public static int findLanding(EntityTable table, DynamicAabbTree tree, int objX, int objY, int objWidth,
+                                  int objHeight, int playerLayer) {
+        if (table.size() <= AabbKernel.BLOCK) {
+            return AabbKernel.firstLanding(table.x, table.y, table.width, table.layer, table.solid, table.size(),
+                    objX, objY, objWidth, objHeight, playerLayer);
+        }
+        int right = objX + objWidth, bottom = objY + objHeight;
+        int first = -1;
+        for (int i = 0, found = queryAround(tree, objX, objY, objWidth, objHeight); i < found; i++) {
+            int row = rowOfBody(table, tree, tree.found(i));
+            if (row >= 0 && (first < 0 || row < first) && (table.solid[row] & AabbKernel.landing(table.x[row],
+                    table.y[row], table.width[row], table.layer[row], objX, right, bottom, playerLayer)) < 0) {
+                first = row;
+            }
+        }
+        return first;
+    }
+
+    // First row the box overlaps without standing on it, or -1; Collidable's side test minus its top test
+    public static int findSideHit(EntityTable table, DynamicAabbTree tree, int objX, int objY, int objWidth,
+                                  int objHeight, int playerLayer) {
+        if (table.size() <= AabbKernel.BLOCK) {
+            return AabbKernel.firstSideHit(table.x, table.y, table.width, table.height, table.layer, table.solid,
+                    table.size(), objX, objY, objWidth, objHeight, playerLayer);
+        }
+        int right = objX + objWidth, bottom = objY + objHeight;
+        int first = -1;
+        for (int i = 0, found = queryAround(tree, objX, objY, objWidth, objHeight); i < found; i++) {
+            int row = rowOfBody(table, tree, tree.found(i));
+            if (row >= 0 && (first < 0 || row < first) && (table.solid[row] & AabbKernel.sideHit(table.x[row],
+                    table.y[row], table.width[row], table.height[row], table.layer[row], objX, objY, right, bottom,
+                    playerLayer)) < 0) {
+                first = row;
+            }
+        }
+        return first;
+    }
+
+    // First row the box overlaps at all, or -1; Collidable.isCollidingWithSide
+    public static int findOverlap(EntityTable table, DynamicAabbTree tree, int objX, int objY, int objWidth,
+                                  int objHeight, int playerLayer) {
+        if (table.size() <= AabbKernel.BLOCK) {
+            return AabbKernel.firstOverlap(table.x, table.y, table.width, table.height, table.layer, table.solid,
+                    table.size(), objX, objY, objWidth, objHeight, playerLayer);
+        }
+        int right = objX + objWidth, bottom = objY + objHeight;
+        int first = -1;
+        for (int i = 0, found = queryAround(tree, objX, objY, objWidth, objHeight); i < found; i++) {
+            int row = rowOfBody(table, tree, tree.found(i));
+            if (row >= 0 && (first < 0 || row < first) && (table.solid[row] & AabbKernel.overlap(table.x[row],
+                    table.y[row], table.width[row], table.height[row], table.layer[row], objX, objY, right, bottom,
+                    playerLayer)) < 0) {
+                first = row;
+            }
+        }
+        return first;
+    }
+
+    // Bodies near enough to pass any of the find tests: the box grown by the landing tolerance
+    private static int queryAround(DynamicAabbTree tree, int objX, int objY, int objWidth, int objHeight) {
+        int grow = AabbKernel.LANDING_TOLERANCE + 1;
+        return tree.query(objX - grow, objY - grow, objWidth + 2 * grow, objHeight + 2 * grow);
+    }
+
+    private static int rowOfBody(EntityTable table, DynamicAabbTree tree, int proxy) {
+        int entity = tree.payload(proxy);
+        return entity >= 0 ? table.rowOf(entity) : -1;
+    }
+
+    // Rows off the player's layer, or passed through, are drawn faded
+    public static void emit(EntityTable table, RenderCommandList commands, int playerLayer) {
+        int[] x = table.x, y = table.y, width = table.width, height = table.height, layer = table.layer, argb = table.argb;
+        int[] solid = table.solid;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            boolean faded = layer[row] != playerLayer || solid != null && solid[row] == 0;
+            int color = faded ? (argb[row] & 0x00FFFFFF) | (50 << 24) : argb[row];
+            commands.fillRect(x[row], y[row], width[row], height[row], color);
+        }
+    }
+
+    // emit for a table with trajectories, outlining the moving rows whose centre is over distance away
+    // from (centerX, centerY); rows without a path keep their fill, since nothing repaints them as the centre moves
+    public static void emitOutlinedBeyond(EntityTable table, RenderCommandList commands, int playerLayer,
+                                          int centerX, int centerY, int distance) {
+        int[] x = table.x, y = table.y, width = table.width, height = table.height, layer = table.layer, argb = table.argb;
+        int[] solid = table.solid;
+        int[][] path = table.path;
+        long limit = (long) distance * distance;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            boolean faded = layer[row] != playerLayer || solid != null && solid[row] == 0;
+            int color = faded ? (argb[row] & 0x00FFFFFF) | (50 << 24) : argb[row];
+            long dx = x[row] + width[row] / 2 - centerX, dy = y[row] + height[row] / 2 - centerY;
+            if (path[row] != null && dx * dx + dy * dy > limit) {
+                commands.strokeRect(x[row], y[row], width[row], height[row], color);
+            } else {
+                commands.fillRect(x[row], y[row], width[row], height[row], color);
+            }
+        }
+    }
+
+    public static void markDirty(EntityTable table, DirtyRegion dirtyRegion) {
+        int[] x = table.x, y = table.y, width = table.width, height = table.height;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            dirtyRegion.add(x[row], y[row], width[row], height[row]);
+        }
+    }
+
+    // markDirty for a table with trajectories, skipping the rows without a path, which never move
+    public static void markMovingDirty(EntityTable table, DirtyRegion dirtyRegion) {
+        int[] x = table.x, y = table.y, width = table.width, height = table.height;
+        int[][] path = table.path;
+        for (int row = 0, size = table.size(); row < size; row++) {
+            if (path[row] != null) dirtyRegion.add(x[row], y[row], width[row], height[row]);
+        }
+    }
+}
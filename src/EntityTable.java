@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+// Archetype storage: every entity in a table has the same set of components, and each component field is
+// one primitive array indexed by row, so systems walk plain arrays front to back. Rows stay dense because a
+// removed row is filled with the last one; entity ids stay stable through an id-to-row map.
+final class EntityTable {
+    // Components; a table only allocates the columns of the ones it has
+    public static final int BOUNDS = 1;       // x, y, width, height
+    public static final int LAYER = 2;        // layer
+    public static final int RENDER_STYLE = 4; // argb, drawn faded when off the player's layer or not solid
+    public static final int TRAJECTORY = 8;   // path (x0, y0, x1, y1, ...), step (next point, -1 before start)
+    public static final int BODY = 16;        // body, the entity's proxy in a DynamicAabbTree
+    public static final int SOLID = 32;       // solid, -1 for an entity collisions hit and 0 for one they pass through
+
+    private final int components;
+    private int size = 0;
+
+    // Columns, read and written directly by the systems; valid for rows below size()
+    int[] x, y, width, height;
+    int[] layer;
+    int[] argb;
+    int[][] path;
+    int[] step;
+    int[] body;
+    int[] solid; // A mask rather than a flag, so AabbKernel can AND it into its tests
+
+    private int[] entityOfRow;
+    private int[] rowOfEntity = new int[0]; // -1 for ids not in use
+    private int[] freeIds = new int[0];
+    private int freeCount = 0;
+
+    public EntityTable(int components, int capacity) {
+        this.components = components;
+        capacity = Math.max(capacity, 8);
+        entityOfRow = new int[capacity];
+        if (has(BOUNDS)) {
+            x = new int[capacity];
+            y = new int[capacity];
+            width = new int[capacity];
+            height = new int[capacity];
+        }
+        if (has(LAYER)) layer = new int[capacity];
+        if (has(RENDER_STYLE)) argb = new int[capacity];
+        if (has(TRAJECTORY)) {
+            path = new int[capacity][];
+            step = new int[capacity];
+        }
+        if (has(BODY)) body = new int[capacity];
+        if (has(SOLID)) solid = new int[capacity];
+    }
+
+    public boolean has(int component) {
+        return (components & component) == component;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Adds an entity with zeroed components, except that it has no body and is solid, and returns its id
+    public int add() {
+        if (size == entityOfRow.length) grow();
+        int entity;
+        if (freeCount > 0) {
+            entity = freeIds[--freeCount];
+        } else {
+            entity = rowOfEntity.length;
+            rowOfEntity = Arrays.copyOf(rowOfEntity, Math.max(8, entity * 2));
+            Arrays.fill(rowOfEntity, entity, rowOfEntity.length, -1);
+            freeIds = Arrays.copyOf(freeIds, rowOfEntity.length);
+            for (int id = rowOfEntity.length - 1; id > entity; id--) {
+                freeIds[freeCount++] = id;
+            }
+        }
+        int row = size++;
+        entityOfRow[row] = entity;
+        rowOfEntity[entity] = row;
+        clearRow(row);
+        return entity;
+    }
+
+    public boolean contains(int entity) {
+        return entity >= 0 && entity < rowOfEntity.length && rowOfEntity[entity] >= 0;
+    }
+
+    public int rowOf(int entity) {
+        return rowOfEntity[entity];
+    }
+
+    public int entityAt(int row) {
+        return entityOfRow[row];
+    }
+
+    public void remove(int entity) {
+        int row = rowOfEntity[entity];
+        int last = --size;
+        if (row != last) {
+            moveRow(last, row);
+            entityOfRow[row] = entityOfRow[last];
+            rowOfEntity[entityOfRow[row]] = row;
+        }
+        if (path != null) path[last] = null;
+        rowOfEntity[entity] = -1;
+        freeIds[freeCount++] = entity;
+    }
+
+    public void clear() {
+        for (int row = size - 1; row >= 0; row--) {
+            remove(entityOfRow[row]);
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        if (x != null) {
+            x[to] = x[from];
+            y[to] = y[from];
+            width[to] = width[from];
+            height[to] = height[from];
+        }
+        if (layer != null) layer[to] = layer[from];
+        if (argb != null) argb[to] = argb[from];
+        if (path != null) {
+            path[to] = path[from];
+            step[to] = step[from];
+        }
+        if (body != null) body[to] = body[from];
+        if (solid != null) solid[to] = solid[from];
+    }
+
+    private void clearRow(int row) {
+        if (x != null) x[row] = y[row] = width[row] = height[row] = 0;
+        if (layer != null) layer[row] = 0;
+        if (argb != null) argb[row] = 0;
+        if (path != null) {
+            path[row] = null;
+            step[row] = -1;
+        }
+        if (body != null) body[row] = -1;
+        if (solid != null) solid[row] = -1;
+    }
+
+    private void grow() {
+        int capacity = entityOfRow.length * 2;
+        entityOfRow = Arrays.copyOf(entityOfRow, capacity);
+        if (x != null) {
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+        }
+        if (layer != null) layer = Arrays.copyOf(layer, capacity);
+        if (argb != null) argb = Arrays.copyOf(argb, capacity);
+        if (path != null) {
+            path = Arrays.copyOf(path, capacity);
+            step = Arrays.copyOf(step, capacity);
+        }
+        if (body != null) body = Arrays.copyOf(body, capacity);
+        if (solid != null) solid = Arrays.copyOf(solid, capacity);
+    }
+}
@@ -0,0 +1,157 @@
+import java.awt.*;
+import java.util.Arrays;
+
+// Horizontal band of an int[] RGB pixel buffer that shapes are rasterized into with plain span loops.
+// Several bands can share one pixel array and be filled concurrently, since their rows never overlap.
+final class FrameBuffer {
+    private final int[] pixels;
+    private final int width, height;
+    private final int bandTop, bandBottom; // Rows [bandTop, bandBottom) belong to this band
+
+    // Area actually written this frame: the band, narrowed to the repainted region
+    private int clipLeft, clipTop, clipRight, clipBottom;
+
+    public FrameBuffer(int[] pixels, int width, int height, int bandTop, int bandBottom) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.bandTop = Math.max(0, bandTop);
+        this.bandBottom = Math.min(height, bandBottom);
+        setClip(0, 0, width, height);
+    }
+
+    // Restricts drawing to the given rectangle (within this band); everything outside keeps its old pixels
+    public void setClip(int x, int y, int w, int h) {
+        clipLeft = Math.max(0, x);
+        clipRight = Math.max(clipLeft, Math.min(width, x + w));
+        clipTop = Math.max(bandTop, y);
+        clipBottom = Math.max(clipTop, Math.min(bandBottom, y + h));
+    }
+
+    public boolean isClippedAway() {
+        return clipLeft >= clipRight || clipTop >= clipBottom;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getClipLeft() {
+        return clipLeft;
+    }
+
+    public int getClipRight() {
+        return clipRight;
+    }
+
+    public int getClipTop() {
+        return clipTop;
+    }
+
+    public int getClipBottom() {
+        return clipBottom;
+    }
+
+    // ARGB colour for an object, faded the same way draw() fades objects on another layer
+    public static int layerColor(Color color, int objectLayer, int playerLayer) {
+        return objectLayer != playerLayer ? (color.getRGB() & 0x00FFFFFF) | (50 << 24) : color.getRGB();
+    }
+
+    public void clear(int rgb) {
+        for (int row = clipTop; row < clipBottom; row++) {
+            Arrays.fill(pixels, row * width + clipLeft, row * width + clipRight, rgb);
+        }
+    }
+
+    public void fillRect(int x, int y, int w, int h, int argb) {
+        int left = Math.max(clipLeft, x);
+        int right = Math.min(clipRight, x + w);
+        int top = Math.max(clipTop, y);
+        int bottom = Math.min(clipBottom, y + h);
+        if (left >= right || top >= bottom) return;
+
+        for (int row = top; row < bottom; row++) {
+            fillSpan(row * width + left, row * width + right, argb);
+        }
+    }
+
+    // One pixel border just inside the box, i.e. Graphics.drawRect(x, y, w - 1, h - 1)
+    public void strokeRect(int x, int y, int w, int h, int argb) {
+        if (w <= 2 || h <= 2) {
+            fillRect(x, y, w, h, argb);
+            return;
+        }
+        fillRect(x, y, w, 1, argb);
+        fillRect(x, y + h - 1, w, 1, argb);
+        fillRect(x, y + 1, 1, h - 2, argb);
+        fillRect(x + w - 1, y + 1, 1, h - 2, argb);
+    }
+
+    // Lower half of the ellipse inscribed in the given box, i.e. Graphics.fillArc(x, y, w, h, 180, 180)
+    public void fillLowerHalfEllipse(int x, int y, int w, int h, int argb) {
+        double radiusX = w / 2.0, radiusY = h / 2.0;
+        double centerX = x + radiusX, centerY = y + radiusY;
+        int top = Math.max(clipTop, (int) Math.floor(centerY));
+        int bottom = Math.min(clipBottom, y + h);
+        for (int row = top; row < bottom; row++) {
+            double dy = (row + 0.5 - centerY) / radiusY;
+            if (dy * dy > 1) continue;
+            double halfWidth = radiusX * Math.sqrt(1 - dy * dy);
+            int left = Math.max(clipLeft, (int) Math.round(centerX - halfWidth));
+            int right = Math.min(clipRight, (int) Math.round(centerX + halfWidth));
+            if (left < right) {
+                fillSpan(row * width + left, row * width + right, argb);
+            }
+        }
+    }
+
+    // Solid region between the heightfield's top and bottom profiles, with (x, y) as its origin
+    public void fillHeightfield(int x, int y, Heightfield surface, int argb) {
+        int firstColumn = Math.max(0, clipLeft - x);
+        int lastColumn = Math.min(surface.width(), clipRight - x);
+        for (int column = firstColumn; column < lastColumn; column++) {
+            int top = Math.max(clipTop, y + surface.topAt(column));
+            int bottom = Math.min(clipBottom, y + surface.bottomAt(column));
+            int index = top * width + x + column;
+            for (int row = top; row < bottom; row++, index += width) {
+                pixels[index] = blend(pixels[index], argb);
+            }
+        }
+    }
+
+    private void fillSpan(int from, int to, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 255) {
+            Arrays.fill(pixels, from, to, argb);
+            return;
+        }
+        if (alpha == 0) return;
+
+        // Source terms are constant across the span, so only the destination is scaled per pixel
+        int inverse = 255 - alpha;
+        int red = ((argb >> 16) & 0xFF) * alpha + 127;
+        int green = ((argb >> 8) & 0xFF) * alpha + 127;
+        int blue = (argb & 0xFF) * alpha + 127;
+        for (int i = from; i < to; i++) {
+            int dst = pixels[i];
+            int r = (red + ((dst >> 16) & 0xFF) * inverse) / 255;
+            int g = (green + ((dst >> 8) & 0xFF) * inverse) / 255;
+            int b = (blue + (dst & 0xFF) * inverse) / 255;
+            pixels[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static int blend(int dst, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 255) return argb;
+        int inverse = 255 - alpha;
+        int r = (((argb >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inverse + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inverse + 127) / 255;
+        int b = ((argb & 0xFF) * alpha + (dst & 0xFF) * inverse + 127) / 255;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
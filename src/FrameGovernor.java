@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+// Watches how long paints take and trades picture quality for frame time. Paint times go into a histogram
+// of 1 ms buckets; after every window of paints, a 95th percentile over the frame budget drops one quality
+// tier, and a few windows in a row under half the budget climb one back. A climb that has to be undone
+// straight away doubles the calm windows the next one needs, so a steady load doesn't flip between two
+// tiers. Tiers are cumulative, cheapest loss first, and every change is logged.
+final class FrameGovernor {
+    public static final int FULL = 0;
+    public static final int CACHED_OFF_LAYER = 1; // Off-layer level geometry comes from an image drawn once
+    public static final int NO_DEBUG_HUD = 2;
+    public static final int ECHO_OUTLINES = 3;    // Moving echoes away from the player are drawn as outlines
+    private static final String[] TIER_NAMES = {
+            "full", "cached off-layer geometry", "no debug HUD", "distant echoes as outlines"};
+
+    private static final int BUDGET_MS = 16; // The simulation's tick
+    private static final int WINDOW = 60; // Paints per decision
+    private static final int RECOVERY_WINDOWS = 3; // Calm windows in a row before stepping back up
+    private static final int MAX_RECOVERY_WINDOWS = 96;
+
+    private final boolean adaptive;
+    private final int[] histogram = new int[BUDGET_MS * 4 + 1]; // Last bucket holds everything slower
+    private int painted;
+    private int calmWindows;
+    private int recoveryWindows = RECOVERY_WINDOWS;
+    private int windowsSinceClimb = -1; // -1 unless the last change was a climb
+    private volatile int tier;
+
+    // Run with -Dsuperine.quality=<0-3> to pin a tier instead of adapting
+    public static FrameGovernor fromProperties() {
+        String quality = System.getProperty("superine.quality", "auto");
+        if (quality.equals("auto")) return new FrameGovernor(FULL, true);
+        int tier = Integer.parseInt(quality);
+        if (tier < FULL || tier > ECHO_OUTLINES) throw new IllegalArgumentException("No quality tier " + tier);
+        return new FrameGovernor(tier, false);
+    }
+
+    public FrameGovernor(int tier, boolean adaptive) {
+        this.tier = tier;
+        this.adaptive = adaptive;
+    }
+
+    // Read by the simulation to decide what to emit, and by the renderer to decide how to draw it
+    public int tier() {
+        return tier;
+    }
+
+    // Renderer, after every paint; true when the tier changed and the whole screen should be redrawn
+    public boolean framePainted(long nanos) {
+        if (!adaptive) return false;
+        histogram[(int) Math.min(histogram.length - 1, nanos / 1_000_000)]++;
+        if (++painted < WINDOW) return false;
+
+        int p95 = percentile(95);
+        Arrays.fill(histogram, 0);
+        painted = 0;
+        if (windowsSinceClimb >= 0) windowsSinceClimb++;
+        if (p95 >= BUDGET_MS) {
+            calmWindows = 0;
+            if (tier == ECHO_OUTLINES) return false;
+            if (windowsSinceClimb == 1) {
+                recoveryWindows = Math.min(MAX_RECOVERY_WINDOWS, recoveryWindows * 2);
+            } else if (windowsSinceClimb > 1) {
+                recoveryWindows = Math.max(RECOVERY_WINDOWS, recoveryWindows / 2);
+            }
+            windowsSinceClimb = -1;
+            return change(tier + 1, p95);
+        }
+        if (p95 >= BUDGET_MS / 2) {
+            calmWindows = 0;
+        } else if (++calmWindows >= recoveryWindows && tier > FULL) {
+            calmWindows = 0;
+            windowsSinceClimb = 0;
+            return change(tier - 1, p95);
+        }
+        return false;
+    }
+
+    // Upper edge in ms of the bucket the given share of paints fits under
+    private int percentile(int percent) {
+        int needed = (painted * percent + 99) / 100, seen = 0;
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= needed) return bucket + 1;
+        }
+        return histogram.length;
+    }
+
+    private boolean change(int next, int p95) {
+        System.out.println("quality: " + TIER_NAMES[tier] + " -> " + TIER_NAMES[next]
+                + " (95% of the last " + WINDOW + " paints under " + p95 + " ms)");
+        tier = next;
+        return true;
+    }
+}
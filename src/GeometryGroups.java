@@ -0,0 +1,187 @@
+import java.util.Arrays;
+
+// Named sets of level geometry that buttons and timers switch on and off. Each object carries its group id
+// and collision and rendering test one bit per object, so toggling a group of any size is a single bit flip
+// and the spatial index is never touched. Group 0 holds everything ungrouped and is always enabled.
+// Whatever asks whether an object is there goes through isEnabled: the game's collision, drawing and
+// hazards, quantum platforms, and BatchEnvironment, which keeps one GeometryGroups per environment.
+final class GeometryGroups {
+    public static final int NONE = 0;
+
+    private int count = 1;
+    private long[] enabled = {1L};
+    private long[] changed = {0L}; // Groups flipped since the screen last caught up
+    private int[] bounds = new int[4]; // minX, minY, maxX, maxY per group, for repainting a flipped group
+
+    // Groups switching themselves on and off on a timer
+    private final TimingWheel timers;
+    private TimingWheel.Timer[] cycleTimers = new TimingWheel.Timer[1];
+
+    public GeometryGroups(TimingWheel timers) {
+        this.timers = timers;
+    }
+
+    // Takes on the level's groups in their starting state; objects are added with include()
+    public void load(LevelTemplate template) {
+        count = template.getGroupCount() + 1;
+        // Arrays are reused while the level fits, so restarting allocates nothing
+        int words = (count + 63) >>> 6;
+        if (enabled.length < words) {
+            enabled = new long[words];
+            changed = new long[words];
+        } else {
+            Arrays.fill(enabled, 0L);
+            Arrays.fill(changed, 0L);
+        }
+        enabled[0] = 1L;
+        for (int group = 1; group < count; group++) {
+            if (template.isGroupEnabled(group)) enabled[group >>> 6] |= 1L << group;
+        }
+        if (bounds.length < count * 4) bounds = new int[count * 4];
+        for (int group = 0; group < count; group++) {
+            bounds[group * 4] = bounds[group * 4 + 1] = Integer.MAX_VALUE;
+            bounds[group * 4 + 2] = bounds[group * 4 + 3] = Integer.MIN_VALUE;
+        }
+        for (TimingWheel.Timer timer : cycleTimers) {
+            timers.cancel(timer);
+        }
+        if (cycleTimers.length < count) {
+            cycleTimers = new TimingWheel.Timer[count];
+        } else {
+            Arrays.fill(cycleTimers, null);
+        }
+    }
+
+    public void include(Collidable collidable) {
+        int base = collidable.group * 4;
+        bounds[base] = Math.min(bounds[base], collidable.x);
+        bounds[base + 1] = Math.min(bounds[base + 1], collidable.y);
+        bounds[base + 2] = Math.max(bounds[base + 2], collidable.x + collidable.width);
+        bounds[base + 3] = Math.max(bounds[base + 3], collidable.y + collidable.height);
+    }
+
+    public boolean isEnabled(int group) {
+        return (enabled[group >>> 6] & (1L << group)) != 0;
+    }
+
+    public boolean isEnabled(Collidable collidable) {
+        return isEnabled(collidable.group);
+    }
+
+    public void set(int group, boolean on) {
+        if (isEnabled(group) != on) toggle(group);
+    }
+
+    public void toggle(int group) {
+        if (group == NONE) return;
+        enabled[group >>> 6] ^= 1L << group;
+        changed[group >>> 6] |= 1L << group;
+    }
+
+    // Flips the group every period ticks from now on; starting an already cycling group changes its period
+    public void cycle(int group, int period) {
+        if (group == NONE || period <= 0) return;
+        timers.cancel(cycleTimers[group]);
+        cycleTimers[group] = timers.schedule(period, () -> {
+            toggle(group);
+            cycle(group, period);
+        });
+    }
+
+    // Marks the area of every group flipped since the last call for repainting
+    public void markChanged(DirtyRegion dirtyRegion) {
+        for (int word = 0; word < changed.length; word++) {
+            long bits = changed[word];
+            while (bits != 0) {
+                int base = ((word << 6) + Long.numberOfTrailingZeros(bits)) * 4;
+                if (bounds[base] <= bounds[base + 2]) {
+                    dirtyRegion.add(bounds[base], bounds[base + 1],
+                            bounds[base + 2] - bounds[base], bounds[base + 3] - bounds[base + 1]);
+                }
+                bits &= bits - 1;
+            }
+            changed[word] = 0;
+        }
+    }
+
+    // Button actions, for the level builders. They are data rather than closures, so a level built once can
+    // act on the groups of any number of simulations; run() acts on the groups that made them.
+    public Runnable toggler(int group) {
+        return new Action(this, Action.TOGGLE, group, 0, null);
+    }
+
+    public Runnable disabler(int group) {
+        return new Action(this, Action.DISABLE, group, 0, null);
+    }
+
+    public Runnable cycler(int group, int period) {
+        return new Action(this, Action.CYCLE, group, period, null);
+    }
+
+    // Runs another action some ticks after the button is pressed
+    public Runnable delayed(int ticks, Runnable action) {
+        return action == null ? null : new Action(this, Action.DELAY, NONE, ticks, action);
+    }
+
+    static final class Action implements Runnable {
+        private static final int TOGGLE = 0, DISABLE = 1, CYCLE = 2, DELAY = 3;
+
+        private final GeometryGroups groups;
+        private final int kind, group, ticks;
+        private final Runnable delayed; // For DELAY; an Action, or something else such as completing the level
+
+        private Action(GeometryGroups groups, int kind, int group, int ticks, Runnable delayed) {
+            this.groups = groups;
+            this.kind = kind;
+            this.group = group;
+            this.ticks = ticks;
+            this.delayed = delayed;
+        }
+
+        @Override
+        public void run() {
+            runOn(groups, delayed);
+        }
+
+        // The action as a level file's button line writes it, with the level's group names; a delayed action
+        // that is not an Action can only be completing the level
+        String token(LevelTemplate level) {
+            switch (kind) {
+                case TOGGLE:
+                    return "toggle:" + level.getGroupName(group);
+                case DISABLE:
+                    if (!level.getGroupName(group).equals(LevelTemplate.DISAPPEARING)) {
+                        throw new IllegalArgumentException("Level files can only switch off the disappearing group");
+                    }
+                    return "clear";
+                case CYCLE:
+                    return "cycle:" + level.getGroupName(group) + ":" + ticks;
+                default:
+                    return "delay:" + ticks + ":" + (delayed instanceof Action ? ((Action) delayed).token(level) : "goal");
+            }
+        }
+
+        // Acts on the given groups and their timers instead; a delayed action that is not an Action runs
+        // other in its place
+        void runOn(GeometryGroups target, Runnable other) {
+            switch (kind) {
+                case TOGGLE:
+                    target.toggle(group);
+                    break;
+                case DISABLE:
+                    target.set(group, false);
+                    break;
+                case CYCLE:
+                    target.cycle(group, ticks);
+                    break;
+                default:
+                    if (delayed instanceof Action) {
+                        target.timers.schedule(ticks, () -> ((Action) delayed).runOn(target, other));
+                    } else {
+                        target.timers.schedule(ticks, other);
+                    }
+                    break;
+            }
+        }
+    }
+}
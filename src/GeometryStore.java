@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Static level rectangles kept outside the Java heap, for levels too big to hold as Platform objects. The
+// compiled file is memory-mapped as is and read in place: fixed-size records, a colour palette and a uniform
+// grid over the records, so collision and drawing never build objects and heap use does not grow with the
+// level. Records collide and draw like plain Platforms.
+//
+// Layout, little-endian ints:
+//   header   magic, version, count, materials, cellShift, originX, originY, columns, rows, entries
+//   palette  materials x argb
+//   records  count x (x, y, width, height, layer, material)
+//   cells    columns * rows + 1 offsets into entries, one cell's records running up to the next offset
+//   entries  record indices, by cell
+final class GeometryStore {
+    private static final int MAGIC = 0x4F454753; // "SGEO"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 10;
+    private static final int RECORD_INTS = 6;
+    private static final int X = 0, Y = 1, WIDTH = 2, HEIGHT = 3, LAYER = 4, MATERIAL = 5;
+
+    private final ByteBuffer buffer;
+    private final int count, cellShift, originX, originY, columns, rows;
+    private final int paletteOffset, recordsOffset, cellsOffset, entriesOffset; // In bytes
+
+    private GeometryStore(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a compiled geometry file");
+        }
+        count = buffer.getInt(8);
+        int materials = buffer.getInt(12);
+        cellShift = buffer.getInt(16);
+        originX = buffer.getInt(20);
+        originY = buffer.getInt(24);
+        columns = buffer.getInt(28);
+        rows = buffer.getInt(32);
+        paletteOffset = HEADER_INTS * 4;
+        recordsOffset = paletteOffset + materials * 4;
+        cellsOffset = recordsOffset + count * RECORD_INTS * 4;
+        entriesOffset = cellsOffset + (columns * rows + 1) * 4;
+    }
+
+    // Maps a compiled file read-only; the mapping lives as long as the store (files up to 2 GB)
+    public static GeometryStore map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new GeometryStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int x(int record) {
+        return field(record, X);
+    }
+
+    public int y(int record) {
+        return field(record, Y);
+    }
+
+    public int width(int record) {
+        return field(record, WIDTH);
+    }
+
+    public int height(int record) {
+        return field(record, HEIGHT);
+    }
+
+    public int layer(int record) {
+        return field(record, LAYER);
+    }
+
+    public int argb(int record) {
+        return buffer.getInt(paletteOffset + field(record, MATERIAL) * 4);
+    }
+
+    private int field(int record, int field) {
+        return buffer.getInt(recordsOffset + (record * RECORD_INTS + field) * 4);
+    }
+
+    // The find methods return the lowest-numbered matching record, or -1, so the answer does not depend on
+    // how the grid splits the level
+
+    // Platform.isCollidingWithTop
+    public int findLanding(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return find(LANDING, objX, objY, objWidth, objHeight, playerLayer);
+    }
+
+    // Collidable.isCollidingWithSide without the landing test, as EchoMovementGame.blocksSideways
+    public int findSideHit(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return find(SIDE_HIT, objX, objY, objWidth, objHeight, playerLayer);
+    }
+
+    // Collidable.isCollidingWithSide
+    public int findOverlap(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return find(OVERLAP, objX, objY, objWidth, objHeight, playerLayer);
+    }
+
+    // QuantumEntangledPlatform's landing test: on any layer, up to 10 px below the top and with no inset
+    public int findSupport(int objX, int objY, int objWidth, int objHeight) {
+        return find(SUPPORT, objX, objY, objWidth, objHeight, 0);
+    }
+
+    private static final int LANDING = 0, SIDE_HIT = 1, OVERLAP = 2, SUPPORT = 3;
+    private static final int REACH = 6; // How far past the box a record can be and still pass a test
+
+    private int find(int test, int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        int first = -1;
+        int firstColumn = column(objX - REACH), lastColumn = column(objX + objWidth + REACH);
+        int firstRow = row(objY - REACH), lastRow = row(objY + objHeight + REACH);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                int end = buffer.getInt(cellsOffset + (cell + 1) * 4);
+                for (int entry = buffer.getInt(cellsOffset + cell * 4); entry < end; entry++) {
+                    int record = buffer.getInt(entriesOffset + entry * 4);
+                    if ((first < 0 || record < first) && matches(test, record, objX, objY, objWidth, objHeight, playerLayer)) {
+                        first = record;
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    private boolean matches(int test, int record, int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        int x = x(record), y = y(record), width = width(record), height = height(record);
+        int bottom = objY + objHeight;
+        if (test == SUPPORT) return objX < x + width && objX + objWidth > x && bottom >= y && bottom <= y + 10;
+        if (layer(record) != playerLayer) return false;
+        boolean overlaps = objX + objWidth > x && objX < x + width && bottom > y && objY < y + height;
+        // Platform narrows Collidable's top test to 5 px in from the edges and 5 px below the top
+        boolean landing = objX + 5 < x + width && objX + objWidth - 5 > x && bottom >= y && bottom <= y + 5;
+        switch (test) {
+            case LANDING:
+                return landing;
+            case SIDE_HIT:
+                return overlaps && !landing;
+            default:
+                return overlaps;
+        }
+    }
+
+    // Appends every record inside the view, each once: a record spanning several cells is drawn from the
+    // first of them the view covers
+    public void emit(RenderCommandList commands, int viewX, int viewY, int viewWidth, int viewHeight, int playerLayer) {
+        int firstColumn = column(viewX), lastColumn = column(viewX + viewWidth - 1);
+        int firstRow = row(viewY), lastRow = row(viewY + viewHeight - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                int end = buffer.getInt(cellsOffset + (cell + 1) * 4);
+                for (int entry = buffer.getInt(cellsOffset + cell * 4); entry < end; entry++) {
+                    int record = buffer.getInt(entriesOffset + entry * 4);
+                    int x = x(record), y = y(record), width = width(record), height = height(record);
+                    if (x >= viewX + viewWidth || x + width <= viewX || y >= viewY + viewHeight || y + height <= viewY) {
+                        continue;
+                    }
+                    if (column(Math.max(x, viewX)) != column || row(Math.max(y, viewY)) != row) continue;
+                    int argb = argb(record);
+                    commands.fillRect(x, y, width, height,
+                            layer(record) != playerLayer ? (argb & 0x00FFFFFF) | (50 << 24) : argb);
+                }
+            }
+        }
+    }
+
+    // Grid coordinates, clamped to the grid so boxes reaching past the level still find its edge cells
+    private int column(int x) {
+        return Math.max(0, Math.min(columns - 1, (x - originX) >> cellShift));
+    }
+
+    private int row(int y) {
+        return Math.max(0, Math.min(rows - 1, (y - originY) >> cellShift));
+    }
+
+    // Builds a compiled file. Records are staged in a direct buffer, so writing a huge level does not need the
+    // heap either; only the per-cell counts and the palette live there.
+    static final class Writer {
+        private static final int MIN_CELL_SHIFT = 7; // 128 px cells
+        private static final int MAX_CELLS_PER_RECORD = 2; // Cells allowed per record, on average
+
+        private ByteBuffer records = ByteBuffer.allocateDirect(1024 * RECORD_INTS * 4).order(ByteOrder.LITTLE_ENDIAN);
+        private int count = 0;
+        private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        private final HashMap<Integer, Integer> materials = new HashMap<>();
+        private int[] palette = new int[16];
+
+        public Writer add(int x, int y, int width, int height, int layer, int argb) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("Empty rectangle at " + x + "," + y);
+            if (records.remaining() < RECORD_INTS * 4) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(records.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                records.flip();
+                bigger.put(records);
+                records = bigger;
+            }
+            records.putInt(x).putInt(y).putInt(width).putInt(height).putInt(layer).putInt(material(argb));
+            count++;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + width);
+            maxY = Math.max(maxY, y + height);
+            return this;
+        }
+
+        private int material(int argb) {
+            Integer material = materials.get(argb);
+            if (material == null) {
+                material = materials.size();
+                materials.put(argb, material);
+                if (material == palette.length) palette = Arrays.copyOf(palette, material * 2);
+                palette[material] = argb;
+            }
+            return material;
+        }
+
+        public void write(Path path) throws IOException {
+            if (count == 0) minX = minY = maxX = maxY = 0;
+            // Coarsen the grid until it has no more cells than a couple per record
+            int cellShift = MIN_CELL_SHIFT;
+            long maxCells = Math.max(64, (long) count * MAX_CELLS_PER_RECORD);
+            while (cells(maxX - minX, cellShift) * cells(maxY - minY, cellShift) > maxCells) {
+                cellShift++;
+            }
+            int columns = (int) cells(maxX - minX, cellShift), rows = (int) cells(maxY - minY, cellShift);
+
+            // Counting sort of the records into their cells
+            int[] starts = new int[columns * rows + 1];
+            forEachCell(cellShift, columns, (cell, record) -> starts[cell + 1]++);
+            for (int cell = 0; cell < columns * rows; cell++) {
+                starts[cell + 1] += starts[cell];
+            }
+            int entryCount = starts[columns * rows];
+            ByteBuffer entries = ByteBuffer.allocateDirect(entryCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+            int[] next = Arrays.copyOf(starts, columns * rows);
+            forEachCell(cellShift, columns, (cell, record) -> entries.putInt(next[cell]++ * 4, record));
+
+            ByteBuffer header = ByteBuffer.allocate((HEADER_INTS + materials.size()) * 4).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(materials.size()).putInt(cellShift)
+                    .putInt(minX).putInt(minY).putInt(columns).putInt(rows).putInt(entryCount);
+            for (int material = 0; material < materials.size(); material++) {
+                header.putInt(palette[material]);
+            }
+            header.flip();
+            ByteBuffer body = records.duplicate();
+            body.flip();
+            ByteBuffer cells = ByteBuffer.allocate(starts.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            cells.asIntBuffer().put(starts);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                writeFully(channel, body);
+                writeFully(channel, cells);
+                writeFully(channel, entries);
+            }
+        }
+
+        private static long cells(int span, int cellShift) {
+            return Math.max(1, ((long) span + (1L << cellShift) - 1) >> cellShift);
+        }
+
+        private interface CellVisitor {
+            void visit(int cell, int record);
+        }
+
+        private void forEachCell(int cellShift, int columns, CellVisitor visitor) {
+            for (int record = 0; record < count; record++) {
+                int base = record * RECORD_INTS * 4;
+                int x = records.getInt(base) - minX, y = records.getInt(base + 4) - minY;
+                int right = x + records.getInt(base + 8) - 1, bottom = y + records.getInt(base + 12) - 1;
+                for (int row = y >> cellShift; row <= bottom >> cellShift; row++) {
+                    for (int column = x >> cellShift; column <= right >> cellShift; column++) {
+                        visitor.visit(row * columns + column, record);
+                    }
+                }
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Players' finished runs, kept on disk so they can come back as ghosts in later sessions. Each level keeps
+// only its fastest few runs, one file each. A run's frames are streamed out to a scratch file while it is
+// played and only become part of the store when the file is renamed into place, so an abandoned run, or one
+// cut short by a crash, is overwritten by the next. Playback reads a run a chunk at a time, with the next
+// chunk already loading, so a ghost takes the same memory whether its run is seconds or hours.
+// Each level's runs are listed from disk once and then kept in memory, and the runs that drop out are deleted
+// in the background, so starting a run again costs no directory listing.
+//
+// Layout, little-endian:
+//   level-N/<sequence>.run  ticks x (x, y, layer) ints; sequence counts up as runs finish
+//   level-N/recording       the run in progress
+final class GhostStore {
+    private static final int FRAME_BYTES = 12;
+    private static final int CHUNK_FRAMES = 256; // Frames per read or write, about 4 seconds of play
+
+    // The earlier of two equally fast runs comes first, so a tie does not push out a kept run
+    private static final Comparator<Run> FASTEST_FIRST =
+            Comparator.comparingInt((Run run) -> run.ticks).thenComparingLong(run -> run.sequence);
+
+    private final Path directory;
+    private final int keep; // Runs kept per level
+    private final Executor pruner; // Deletes dropped runs off the caller's thread
+    private final Map<Integer, Runs> levels = new HashMap<>(); // Filled from disk as levels are first used
+
+    public GhostStore(Path directory, int keep) {
+        this(directory, keep, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ghost-pruner");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    GhostStore(Path directory, int keep, Executor pruner) {
+        this.directory = directory;
+        this.keep = keep;
+        this.pruner = pruner;
+    }
+
+    // Starts streaming a new run of the level to disk, and hands the runs it has dropped to the pruner. Deleting
+    // waits until here because none of the level's runs may be playing then: some platforms cannot delete an
+    // open file.
+    public Recorder record(int level) throws IOException {
+        Runs runs = runs(level);
+        if (!runs.dropped.isEmpty()) {
+            List<Path> dropped = new ArrayList<>(runs.dropped);
+            runs.dropped.clear();
+            pruner.execute(() -> {
+                try {
+                    for (Path path : dropped) Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    e.printStackTrace(); // Left for the next listing to drop again
+                }
+            });
+        }
+        return new Recorder(this, level, levelDirectory(level).resolve("recording"));
+    }
+
+    // The level's fastest finished runs, fastest first; at most count of them
+    public List<Run> fastestRuns(int level, int count) throws IOException {
+        List<Run> kept = runs(level).kept;
+        return new ArrayList<>(kept.subList(0, Math.min(count, kept.size())));
+    }
+
+    public Playback play(Run run) throws IOException {
+        return new Playback(AsynchronousFileChannel.open(run.path, StandardOpenOption.READ), run);
+    }
+
+    // The next run of the level to finish, named after it
+    private Run nextRun(int level, int ticks) {
+        long sequence = levels.get(level).nextSequence++;
+        return new Run(levelDirectory(level).resolve(sequence + ".run"), sequence, ticks);
+    }
+
+    // A finished run joins the kept ones if it is fast enough, and pushes out the slowest if there are too many
+    private void add(int level, Run run) {
+        List<Run> kept = levels.get(level).kept;
+        kept.add(run);
+        kept.sort(FASTEST_FIRST);
+        while (kept.size() > keep) levels.get(level).dropped.add(kept.remove(kept.size() - 1).path);
+    }
+
+    private Runs runs(int level) throws IOException {
+        Runs runs = levels.get(level);
+        if (runs == null) {
+            runs = readRuns(level);
+            levels.put(level, runs);
+        }
+        return runs;
+    }
+
+    private Runs readRuns(int level) throws IOException {
+        Runs runs = new Runs();
+        List<Run> all = new ArrayList<>();
+        Path levelDirectory = Files.createDirectories(levelDirectory(level));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(levelDirectory, "*.run")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long sequence;
+                try {
+                    sequence = Long.parseLong(name.substring(0, name.length() - ".run".length()));
+                } catch (NumberFormatException e) {
+                    continue; // Not one of ours
+                }
+                all.add(new Run(file, sequence, (int) (Files.size(file) / FRAME_BYTES)));
+                runs.nextSequence = Math.max(runs.nextSequence, sequence + 1);
+            }
+        }
+        all.sort(FASTEST_FIRST);
+        runs.kept.addAll(all.subList(0, Math.min(keep, all.size())));
+        for (Run run : all.subList(runs.kept.size(), all.size())) runs.dropped.add(run.path);
+        return runs;
+    }
+
+    private Path levelDirectory(int level) {
+        return directory.resolve("level-" + level);
+    }
+
+    // One level's runs as the store knows them; only touched from the thread that records and plays
+    private static final class Runs {
+        final List<Run> kept = new ArrayList<>(); // Fastest first
+        final List<Path> dropped = new ArrayList<>(); // Still on disk until the next record()
+        long nextSequence;
+    }
+
+    static final class Run {
+        final Path path;
+        final long sequence;
+        final int ticks;
+
+        Run(Path path, long sequence, int ticks) {
+            this.path = path;
+            this.sequence = sequence;
+            this.ticks = ticks;
+        }
+    }
+
+    // Writes one run's frames through a chunk-sized buffer. Either finish() or abandon() ends it.
+    static final class Recorder {
+        private final GhostStore store;
+        private final int level;
+        private final FileChannel frames;
+        private final Path scratch;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_FRAMES * FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private int ticks = 0;
+
+        private Recorder(GhostStore store, int level, Path scratch) throws IOException {
+            // Truncating drops the frames of a run that never finished
+            this.frames = FileChannel.open(scratch, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.store = store;
+            this.level = level;
+            this.scratch = scratch;
+        }
+
+        public void append(int x, int y, int layer) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.putInt(x).putInt(y).putInt(layer);
+            ticks++;
+        }
+
+        // Makes the run part of the store
+        public void finish() throws IOException {
+            flush();
+            frames.force(false); // Frames reach the disk before the name that makes them a run
+            frames.close();
+            Run run = store.nextRun(level, ticks);
+            Files.move(scratch, run.path, StandardCopyOption.ATOMIC_MOVE);
+            store.add(level, run);
+        }
+
+        public void abandon() throws IOException {
+            frames.close();
+            Files.deleteIfExists(scratch);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) frames.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    // Reads a run front to back. Two chunk buffers take turns: frames come out of one while the next chunk is
+    // read into the other in the background.
+    static final class Playback implements AutoCloseable {
+        private final AsynchronousFileChannel channel;
+        private final long end;
+        private long nextChunk; // File position of the chunk after the one being loaded
+        private ByteBuffer current = ByteBuffer.allocateDirect(CHUNK_FRAMES * FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private ByteBuffer loading = ByteBuffer.allocateDirect(CHUNK_FRAMES * FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long loadingFrom;
+        private Future<Integer> pending;
+        private int x, y, layer;
+
+        private Playback(AsynchronousFileChannel channel, Run run) {
+            this.channel = channel;
+            this.end = (long) run.ticks * FRAME_BYTES;
+            this.nextChunk = 0;
+            current.limit(0);
+            prefetch();
+        }
+
+        // Moves to the next frame; false once the run is over
+        public boolean advance() throws IOException {
+            if (!current.hasRemaining()) {
+                if (pending == null) return false;
+                awaitChunk();
+                ByteBuffer done = loading;
+                loading = current;
+                current = done;
+                prefetch();
+                if (!current.hasRemaining()) return false;
+            }
+            x = current.getInt();
+            y = current.getInt();
+            layer = current.getInt();
+            return true;
+        }
+
+        public int x() {
+            return x;
+        }
+
+        public int y() {
+            return y;
+        }
+
+        public int layer() {
+            return layer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void prefetch() {
+            if (nextChunk >= end) {
+                pending = null;
+                return;
+            }
+            loading.clear();
+            loading.limit((int) Math.min(loading.capacity(), end - nextChunk));
+            loadingFrom = nextChunk;
+            nextChunk += loading.limit();
+            pending = channel.read(loading, loadingFrom);
+        }
+
+        // Waits for the background read, finishing it here if it came back short
+        private void awaitChunk() throws IOException {
+            try {
+                int read = pending.get();
+                while (read >= 0 && loading.hasRemaining()) {
+                    read = channel.read(loading, loadingFrom + loading.position()).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading a ghost", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not read a ghost", e.getCause());
+            }
+            loading.flip();
+            loading.limit(loading.limit() - loading.limit() % FRAME_BYTES); // A short file ends the run
+        }
+    }
+}
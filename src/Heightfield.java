@@ -0,0 +1,139 @@
+// Per-column surface profile of a terrain piece, precomputed once so collision checks are array lookups
+final class Heightfield {
+    private final int[] top;    // offset of the solid's upper surface from the piece's y, per column
+    private final int[] bottom; // offset of the solid's lower surface from the piece's y, per column
+
+    // Sparse tables so the side/ceiling checks can take a min/max over any column range in O(1)
+    private final int[][] minTop;
+    private final int[][] maxBottom;
+
+    public Heightfield(int[] top, int[] bottom) {
+        if (top.length == 0 || top.length != bottom.length) {
+            throw new IllegalArgumentException("Heightfield needs matching, non-empty top and bottom profiles");
+        }
+        this.top = top;
+        this.bottom = bottom;
+
+        int levels = 32 - Integer.numberOfLeadingZeros(top.length);
+        minTop = new int[levels][];
+        maxBottom = new int[levels][];
+        minTop[0] = top;
+        maxBottom[0] = bottom;
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int count = top.length - (1 << level) + 1;
+            minTop[level] = new int[count];
+            maxBottom[level] = new int[count];
+            for (int i = 0; i < count; i++) {
+                minTop[level][i] = Math.min(minTop[level - 1][i], minTop[level - 1][i + half]);
+                maxBottom[level][i] = Math.max(maxBottom[level - 1][i], maxBottom[level - 1][i + half]);
+            }
+        }
+    }
+
+    public int width() {
+        return top.length;
+    }
+
+    public int topAt(int column) {
+        return top[clamp(column)];
+    }
+
+    public int bottomAt(int column) {
+        return bottom[clamp(column)];
+    }
+
+    // Highest point of the upper surface over the columns [from, to]
+    public int minTop(int from, int to) {
+        from = clamp(from);
+        to = clamp(to);
+        int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        return Math.min(minTop[level][from], minTop[level][to - (1 << level) + 1]);
+    }
+
+    // Lowest point of the lower surface over the columns [from, to]
+    public int maxBottom(int from, int to) {
+        from = clamp(from);
+        to = clamp(to);
+        int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        return Math.max(maxBottom[level][from], maxBottom[level][to - (1 << level) + 1]);
+    }
+
+    // The overlap searches split the range into the few power-of-two blocks the sparse tables cover, skip
+    // every block whose highest top and lowest bottom rule out an overlap, and halve the first block that
+    // may hold one. With one of the profiles flat, as for terrain and mountains, that takes O(log^2 n).
+
+    // First column in [from, to] whose solid overlaps the offsets [spanTop, spanBottom), or -1
+    public int firstOverlapping(int from, int to, int spanTop, int spanBottom) {
+        to = clamp(to);
+        for (int column = clamp(from); column <= to; ) {
+            int level = 31 - Integer.numberOfLeadingZeros(to - column + 1);
+            int found = firstInBlock(level, column, spanTop, spanBottom);
+            if (found >= 0) return found;
+            column += 1 << level;
+        }
+        return -1;
+    }
+
+    // Last column in [from, to] whose solid overlaps the offsets [spanTop, spanBottom), or -1
+    public int lastOverlapping(int from, int to, int spanTop, int spanBottom) {
+        from = clamp(from);
+        for (int column = clamp(to); column >= from; ) {
+            int level = 31 - Integer.numberOfLeadingZeros(column - from + 1);
+            int found = lastInBlock(level, column - (1 << level) + 1, spanTop, spanBottom);
+            if (found >= 0) return found;
+            column -= 1 << level;
+        }
+        return -1;
+    }
+
+    // First overlapping column of the 2^level columns from start, or -1
+    private int firstInBlock(int level, int start, int spanTop, int spanBottom) {
+        if (minTop[level][start] >= spanBottom || maxBottom[level][start] <= spanTop) return -1;
+        if (level == 0) return start;
+        int found = firstInBlock(level - 1, start, spanTop, spanBottom);
+        return found >= 0 ? found : firstInBlock(level - 1, start + (1 << (level - 1)), spanTop, spanBottom);
+    }
+
+    private int lastInBlock(int level, int start, int spanTop, int spanBottom) {
+        if (minTop[level][start] >= spanBottom || maxBottom[level][start] <= spanTop) return -1;
+        if (level == 0) return start;
+        int found = lastInBlock(level - 1, start + (1 << (level - 1)), spanTop, spanBottom);
+        return found >= 0 ? found : lastInBlock(level - 1, start, spanTop, spanBottom);
+    }
+
+    private int clamp(int column) {
+        if (column < 0) return 0;
+        if (column >= top.length) return top.length - 1;
+        return column;
+    }
+
+    // Samples a polyline (local coordinates, xs strictly ascending from 0 to width) as the upper surface,
+    // solid all the way down to the given depth
+    public static Heightfield fromPolyline(int[] xs, int[] ys, int depth) {
+        if (xs.length < 2 || xs.length != ys.length) {
+            throw new IllegalArgumentException("A polyline needs at least two points");
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] <= xs[i - 1]) {
+                throw new IllegalArgumentException("Polyline xs must be strictly ascending, but " + xs[i]
+                        + " follows " + xs[i - 1]);
+            }
+        }
+        int width = xs[xs.length - 1] - xs[0];
+        int[] top = new int[width];
+        int[] bottom = new int[width];
+        int segment = 0;
+        for (int column = 0; column < width; column++) {
+            int sampleX = xs[0] + column;
+            while (segment < xs.length - 2 && sampleX >= xs[segment + 1]) {
+                segment++;
+            }
+            int x0 = xs[segment], x1 = xs[segment + 1];
+            int y0 = ys[segment], y1 = ys[segment + 1];
+            top[column] = y0 + (y1 - y0) * (sampleX - x0) / (x1 - x0);
+            bottom[column] = depth;
+        }
+        return new Heightfield(top, bottom);
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Moves a level file's plain platforms into a compiled geometry file that the game maps off-heap, and
+// writes a copy of the level that refers to it. Grouped platforms and everything else stay as text lines.
+// Run: java LevelCompiler <level file> <output level file>; the geometry goes next to the output as .geom
+public class LevelCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java LevelCompiler <level file> <output level file>");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]), output = Paths.get(args[1]);
+        List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+        LevelFile.parse(lines); // Rejects a malformed level before anything is written
+
+        String name = output.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".geom";
+        Path geometry = output.toAbsolutePath().resolveSibling(name);
+        GeometryStore.Writer writer = new GeometryStore.Writer();
+        List<String> kept = new ArrayList<>();
+        kept.add("geometry " + name);
+        int compiled = 0;
+        for (String line : lines) {
+            String[] tokens = line.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (tokens[0].equals("geometry")) {
+                throw new IllegalArgumentException(input + " already uses a geometry file");
+            }
+            if (!tokens[0].equals("platform") || tokens[tokens.length - 1].startsWith("@")) {
+                kept.add(line);
+                continue;
+            }
+            writer.add(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]),
+                    Integer.parseInt(tokens[4]), tokens.length > 6 ? Integer.parseInt(tokens[6]) : 0,
+                    LevelFile.color(tokens[5]).getRGB());
+            compiled++;
+        }
+        writer.write(geometry);
+        Files.write(output, kept, StandardCharsets.UTF_8);
+        System.out.printf("%d platforms compiled into %s%n", compiled, geometry);
+    }
+}
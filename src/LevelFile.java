@@ -0,0 +1,512 @@
+import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+// Text level format, one object per line, so levels can be edited without touching the code:
+//
+//   start <layer>
+//   layerswitch <on|off>                                     (up and down switch the player's layer; off if absent)
+//   echoes <on|off>                                          (E makes an echo; on if absent)
+//   geometry <file>                                          (compiled platforms, see LevelCompiler)
+//   group <name> <on|off>                                    (geometry that buttons switch on and off)
+//   platform <x> <y> <w> <h> <color> [layer]
+//   disappearing <x> <y> <w> <h> <color> [layer]             (in the "disappearing" group)
+//   mountain <x> <y> <w> <h> <color> [layer]
+//   slope <x> <y> <w> <h> <left|right> <color> [layer]      (rises towards the given side)
+//   terrain <baseY> <color> <layer> <x,y> <x,y> ...
+//   tilemap <x> <y> <tile size> <color> <layer> <row> <row> ...  (top row first; . empty, # solid,
+//                                                            = one-way, ^ hazard)
+//   button <x> <y> <w> <h> <color> <action> [layer]
+//   quantum <x> <y> <w> <h> <color> <pair>                   (two lines with the same pair are entangled)
+//
+// Anything but quantum platforms can end in @<group> to belong to a group. Button actions are
+// goal, clear (switch off the disappearing group), toggle:<group>, cycle:<group>:<ticks> (flip the group
+// every so many ticks) and hold:<group> (flipped while the player stands on the button). Any of them can be
+// put off with a delay:<ticks>: prefix.
+// Colours are names (black, red, green, ...) or #rrggbb. Lines starting with # are comments.
+final class LevelFile {
+    private final List<Entry> entries;
+    private final int startLayer;
+    private final boolean layerSwitching, echoes;
+    private final List<String> groups; // Declaration order, which is also id order
+    private final List<Boolean> groupsEnabled;
+    private final Path geometry; // Compiled platforms mapped off-heap, or null
+
+    private LevelFile(List<Entry> entries, int startLayer, boolean layerSwitching, boolean echoes,
+                      List<String> groups, List<Boolean> groupsEnabled, Path geometry) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.startLayer = startLayer;
+        this.layerSwitching = layerSwitching;
+        this.echoes = echoes;
+        this.groups = Collections.unmodifiableList(groups);
+        this.groupsEnabled = Collections.unmodifiableList(groupsEnabled);
+        this.geometry = geometry;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int getStartLayer() {
+        return startLayer;
+    }
+
+    public boolean hasSameRules(LevelFile other) {
+        return startLayer == other.startLayer && layerSwitching == other.layerSwitching && echoes == other.echoes;
+    }
+
+    public Path getGeometry() {
+        return geometry;
+    }
+
+    public boolean hasSameGeometry(LevelFile other) {
+        return Objects.equals(geometry, other.geometry);
+    }
+
+    // Two files with the same groups give every group the same id
+    public boolean hasSameGroups(LevelFile other) {
+        return groups.equals(other.groups) && groupsEnabled.equals(other.groupsEnabled);
+    }
+
+    public static LevelFile load(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        return parse(Files.readAllLines(path, StandardCharsets.UTF_8), directory);
+    }
+
+    public static LevelFile parse(List<String> lines) {
+        return parse(lines, Paths.get(""));
+    }
+
+    // directory is what a relative geometry path is relative to
+    public static LevelFile parse(List<String> lines, Path directory) {
+        // Groups first, so objects can refer to groups declared further down
+        List<String> groups = new ArrayList<>();
+        List<Boolean> groupsEnabled = new ArrayList<>();
+        Map<String, Integer> groupIds = new HashMap<>(); // Generated levels declare thousands of groups
+        for (int i = 0; i < lines.size(); i++) {
+            String[] tokens = tokens(lines.get(i));
+            if (tokens == null || !tokens[0].equals("group")) continue;
+            if (tokens.length != 3 || groupIds.containsKey(tokens[1]) || !(tokens[2].equals("on") || tokens[2].equals("off"))) {
+                throw new IllegalArgumentException("Level line " + (i + 1) + " is invalid: " + lines.get(i).trim());
+            }
+            groups.add(tokens[1]);
+            groupsEnabled.add(tokens[2].equals("on"));
+            groupIds.put(tokens[1], groups.size());
+        }
+        if (!groupIds.containsKey(LevelTemplate.DISAPPEARING)) {
+            groups.add(LevelTemplate.DISAPPEARING);
+            groupsEnabled.add(true);
+            groupIds.put(LevelTemplate.DISAPPEARING, groups.size());
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        int startLayer = 0;
+        boolean layerSwitching = false, echoes = true;
+        Path geometry = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String[] tokens = tokens(lines.get(i));
+            if (tokens == null || tokens[0].equals("group")) continue;
+            try {
+                if (tokens[0].equals("start")) {
+                    startLayer = Integer.parseInt(tokens[1]);
+                } else if (tokens[0].equals("layerswitch")) {
+                    layerSwitching = onOff(tokens);
+                } else if (tokens[0].equals("echoes")) {
+                    echoes = onOff(tokens);
+                } else if (tokens[0].equals("geometry")) {
+                    // File names keep their case, unlike the rest of the line
+                    if (tokens.length != 2 || geometry != null) throw new IllegalArgumentException("one geometry file");
+                    geometry = directory.resolve(lines.get(i).trim().split("\\s+")[1]);
+                } else {
+                    entries.add(new Entry(tokens, groupIds));
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Level line " + (i + 1) + " is invalid: " + lines.get(i).trim(), e);
+            }
+        }
+        return new LevelFile(entries, startLayer, layerSwitching, echoes, groups, groupsEnabled, geometry);
+    }
+
+    private static boolean onOff(String[] tokens) {
+        if (tokens.length != 2 || !(tokens[1].equals("on") || tokens[1].equals("off"))) {
+            throw new IllegalArgumentException("expected on or off");
+        }
+        return tokens[1].equals("on");
+    }
+
+    // The lines of a level file that builds the template again, except that its plain platforms and any
+    // geometry it maps are added to compiled instead, as LevelCompiler does. Objects are written at their start.
+    public static List<String> lines(LevelTemplate template, GeometryStore.Writer compiled) {
+        List<String> lines = new ArrayList<>();
+        lines.add("start " + template.getStartLayer());
+        lines.add("layerswitch " + (template.allowsLayerSwitching() ? "on" : "off"));
+        lines.add("echoes " + (template.allowsEchoes() ? "on" : "off"));
+        for (int group = 1; group <= template.getGroupCount(); group++) {
+            lines.add("group " + template.getGroupName(group) + " " + (template.isGroupEnabled(group) ? "on" : "off"));
+        }
+        for (Platform platform : template.getPlatforms()) {
+            if (platform.group == GeometryGroups.NONE) {
+                compiled.add(platform.x, platform.y, platform.width, platform.height, platform.layer,
+                        platform.getColor().getRGB());
+            } else {
+                lines.add(line("platform", platform, platform.getColor(), template));
+            }
+        }
+        GeometryStore geometry = template.getGeometry();
+        for (int record = 0; geometry != null && record < geometry.size(); record++) {
+            compiled.add(geometry.x(record), geometry.y(record), geometry.width(record), geometry.height(record),
+                    geometry.layer(record), geometry.argb(record));
+        }
+        for (Platform platform : template.getDisappearingPlatforms()) {
+            lines.add("disappearing " + box(platform) + " " + colorToken(platform.getColor()) + " " + platform.layer);
+        }
+        for (Mountain mountain : template.getMountains()) {
+            lines.add(line("mountain", mountain, mountain.getColor(), template));
+        }
+        for (Terrain piece : template.getTerrain()) {
+            StringBuilder line = new StringBuilder("terrain ").append(piece.getBaseY()).append(' ')
+                    .append(colorToken(piece.getColor())).append(' ').append(piece.layer);
+            int[] xs = piece.getPointXs(), ys = piece.getPointYs();
+            for (int i = 0; i < xs.length; i++) line.append(' ').append(xs[i]).append(',').append(ys[i]);
+            lines.add(line.append(groupSuffix(piece, template)).toString());
+        }
+        for (TileMap tileMap : template.getTileMaps()) {
+            StringBuilder line = new StringBuilder("tilemap ").append(tileMap.x).append(' ').append(tileMap.y)
+                    .append(' ').append(tileMap.getTileSize()).append(' ').append(colorToken(tileMap.getColor()))
+                    .append(' ').append(tileMap.layer);
+            for (int row = 0; row < tileMap.getRows(); row++) {
+                line.append(' ');
+                for (int column = 0; column < tileMap.getColumns(); column++) {
+                    line.append(tileMap.isTile(TileMap.SOLID, column, row) ? '#'
+                            : tileMap.isTile(TileMap.ONE_WAY, column, row) ? '='
+                            : tileMap.isTile(TileMap.HAZARD, column, row) ? '^' : '.');
+                }
+            }
+            lines.add(line.append(groupSuffix(tileMap, template)).toString());
+        }
+        for (Button button : template.getButtons()) {
+            lines.add("button " + box(button) + " " + colorToken(button.getColor()) + " "
+                    + actionToken(button, template) + " " + button.layer + groupSuffix(button, template));
+        }
+        QuantumEntangledPlatform[] quantumPlatforms = template.getQuantumPlatforms();
+        for (int i = 0; i < quantumPlatforms.length; i++) {
+            QuantumEntangledPlatform platform = quantumPlatforms[i];
+            int pair = Arrays.asList(quantumPlatforms).indexOf(platform.getPartner());
+            if (pair < 0) throw new IllegalArgumentException("Quantum platform without a partner at " + platform.getStartX());
+            lines.add("quantum " + platform.getStartX() + " " + platform.getStartY() + " " + platform.width + " "
+                    + platform.height + " " + colorToken(platform.getColor()) + " pair" + Math.min(i, pair));
+        }
+        return lines;
+    }
+
+    private static String line(String kind, Collidable collidable, Color color, LevelTemplate template) {
+        return kind + " " + box(collidable) + " " + colorToken(color) + " " + collidable.layer
+                + groupSuffix(collidable, template);
+    }
+
+    private static String box(Collidable collidable) {
+        return collidable.x + " " + collidable.y + " " + collidable.width + " " + collidable.height;
+    }
+
+    private static String groupSuffix(Collidable collidable, LevelTemplate template) {
+        return collidable.group == GeometryGroups.NONE ? "" : " @" + template.getGroupName(collidable.group);
+    }
+
+    private static String colorToken(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+    }
+
+    private static String actionToken(Button button, LevelTemplate template) {
+        if (template.isGoal(button)) return "goal";
+        if (!(button.getAction() instanceof GeometryGroups.Action)) {
+            throw new IllegalArgumentException("Button at " + button.x + "," + button.y + " has no level file action");
+        }
+        String token = ((GeometryGroups.Action) button.getAction()).token(template);
+        if (button.getReleaseAction() == null) return token;
+        // A button acting while held toggles its group both ways
+        int toggle = token.lastIndexOf("toggle:");
+        return token.substring(0, toggle) + "hold:" + token.substring(toggle + "toggle:".length());
+    }
+
+    // A line's normalised tokens, or null for blank lines and comments
+    private static String[] tokens(String line) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) return null;
+        return line.toLowerCase(Locale.ROOT).split("\\s+");
+    }
+
+    public LevelTemplate toTemplate(int number, Runnable completeLevel, GeometryGroups groups) {
+        return toTemplate(number, completeLevel, groups, true);
+    }
+
+    // keyed records the line each object came from, which edits to the file are patched against
+    public LevelTemplate toTemplate(int number, Runnable completeLevel, GeometryGroups groups, boolean keyed) {
+        LevelTemplate.Builder builder = new LevelTemplate.Builder(number).startLayer(startLayer)
+                .layerSwitching(layerSwitching).echoes(echoes);
+        for (int i = 0; i < this.groups.size(); i++) {
+            builder.group(this.groups.get(i), groupsEnabled.get(i));
+        }
+        Map<String, QuantumEntangledPlatform> unpaired = new HashMap<>();
+        for (Entry entry : entries) {
+            Collidable collidable = entry.createChecked(completeLevel, groups);
+            if (collidable instanceof QuantumEntangledPlatform) {
+                QuantumEntangledPlatform platform = (QuantumEntangledPlatform) collidable;
+                QuantumEntangledPlatform partner = unpaired.remove(entry.token(6));
+                if (partner != null) {
+                    platform.linkWith(partner);
+                } else {
+                    unpaired.put(entry.token(6), platform);
+                }
+            }
+            entry.addTo(builder, collidable);
+            if (keyed) builder.key(collidable, entry.getKey());
+        }
+        if (!unpaired.isEmpty()) {
+            throw new IllegalArgumentException("Quantum platforms without a partner: " + unpaired.keySet());
+        }
+        if (geometry != null) {
+            try {
+                builder.geometry(GeometryStore.map(geometry));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map geometry file " + geometry, e);
+            }
+        }
+        return builder.build();
+    }
+
+    // One object definition. Two entries are the same object exactly when their normalised text is equal.
+    static final class Entry {
+        private final String[] tokens;
+        private final String key;
+        private final int group;
+        private final int actionGroup; // Group a button switches
+        private final int disappearingGroup;
+
+        Entry(String[] tokens, Map<String, Integer> groups) {
+            this.key = String.join(" ", tokens);
+            String last = tokens[tokens.length - 1];
+            if (last.startsWith("@")) {
+                this.group = groupId(groups, last.substring(1));
+                tokens = Arrays.copyOf(tokens, tokens.length - 1);
+            } else {
+                this.group = GeometryGroups.NONE;
+            }
+            this.tokens = tokens;
+            this.disappearingGroup = groupId(groups, LevelTemplate.DISAPPEARING);
+            String action = tokens[0].equals("button") ? withoutDelay(tokens[6]) : "";
+            if (action.contains(":")) {
+                this.actionGroup = groupId(groups, action.split(":")[1]);
+            } else {
+                this.actionGroup = disappearingGroup;
+            }
+        }
+
+        private static int groupId(Map<String, Integer> groups, String name) {
+            Integer id = groups.get(name);
+            if (id == null) throw new IllegalArgumentException("Unknown group " + name);
+            return id;
+        }
+
+        public String getKind() {
+            return tokens[0];
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        String token(int index) {
+            return tokens[index];
+        }
+
+        private int number(int index) {
+            return Integer.parseInt(tokens[index]);
+        }
+
+        private int optionalLayer(int index) {
+            return tokens.length > index ? number(index) : 0;
+        }
+
+        // Like create(), but a malformed line is reported with its text
+        public Collidable createChecked(Runnable completeLevel, GeometryGroups groups) {
+            try {
+                Collidable collidable = create(completeLevel, groups);
+                collidable.group = tokens[0].equals("disappearing") ? disappearingGroup : group;
+                return collidable;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid level object: " + key, e);
+            }
+        }
+
+        // Builds the object this line describes; button actions do nothing when completeLevel or groups
+        // is null, as outside the game
+        public Collidable create(Runnable completeLevel, GeometryGroups groups) {
+            switch (tokens[0]) {
+                case "platform":
+                case "disappearing":
+                    return new Platform(number(1), number(2), number(3), number(4), color(tokens[5]), optionalLayer(6));
+                case "mountain":
+                    return new Mountain(number(1), number(2), number(3), number(4), color(tokens[5]), optionalLayer(6));
+                case "slope":
+                    return Terrain.slope(number(1), number(2), number(3), number(4), side(tokens[5]),
+                            color(tokens[6]), optionalLayer(7));
+                case "terrain":
+                    return terrain();
+                case "tilemap":
+                    return tileMap();
+                case "button":
+                    Runnable action = action(tokens[6], completeLevel, groups);
+                    return new Button(number(1), number(2), number(3), number(4), color(tokens[5]), action,
+                            withoutDelay(tokens[6]).startsWith("hold:") ? action : null, optionalLayer(7));
+                case "quantum":
+                    if (tokens.length != 7) throw new IllegalArgumentException("quantum needs a pair name");
+                    if (group != GeometryGroups.NONE) throw new IllegalArgumentException("quantum platforms cannot be grouped");
+                    return new QuantumEntangledPlatform(number(1), number(2), number(3), number(4), color(tokens[5]));
+                default:
+                    throw new IllegalArgumentException("Unknown object type " + tokens[0]);
+            }
+        }
+
+        // Files the object under the list it belongs to in the game
+        public void addTo(LevelTemplate.Builder builder, Collidable collidable) {
+            switch (tokens[0]) {
+                case "platform":
+                    builder.platform((Platform) collidable);
+                    break;
+                case "disappearing":
+                    builder.disappearingPlatform((Platform) collidable);
+                    break;
+                case "mountain":
+                    builder.mountain((Mountain) collidable);
+                    break;
+                case "slope":
+                case "terrain":
+                    builder.terrain((Terrain) collidable);
+                    break;
+                case "tilemap":
+                    builder.tileMap((TileMap) collidable);
+                    break;
+                case "button":
+                    if (tokens[6].equals("goal")) {
+                        builder.goal((Button) collidable);
+                    } else {
+                        builder.button((Button) collidable);
+                    }
+                    break;
+                default:
+                    builder.quantumPlatform((QuantumEntangledPlatform) collidable);
+                    break;
+            }
+        }
+
+        private Terrain terrain() {
+            int points = tokens.length - 4;
+            if (points < 2) throw new IllegalArgumentException("terrain needs at least two points");
+            int[] xs = new int[points], ys = new int[points];
+            for (int i = 0; i < points; i++) {
+                String[] point = tokens[4 + i].split(",");
+                xs[i] = Integer.parseInt(point[0]);
+                ys[i] = Integer.parseInt(point[1]);
+            }
+            return new Terrain(xs, ys, number(1), color(tokens[2]), number(3));
+        }
+
+        private TileMap tileMap() {
+            int rows = tokens.length - 6;
+            if (rows < 1) throw new IllegalArgumentException("tilemap needs at least one row");
+            int columns = 0;
+            for (int row = 0; row < rows; row++) columns = Math.max(columns, tokens[6 + row].length());
+            TileMap tileMap = new TileMap(number(1), number(2), columns, rows, number(3), color(tokens[4]), number(5));
+            for (int row = 0; row < rows; row++) {
+                String tiles = tokens[6 + row];
+                for (int column = 0; column < tiles.length(); column++) {
+                    switch (tiles.charAt(column)) {
+                        case '.':
+                            break;
+                        case '#':
+                            tileMap.setTile(TileMap.SOLID, column, row, true);
+                            break;
+                        case '=':
+                            tileMap.setTile(TileMap.ONE_WAY, column, row, true);
+                            break;
+                        case '^':
+                            tileMap.setTile(TileMap.HAZARD, column, row, true);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown tile " + tiles.charAt(column));
+                    }
+                }
+            }
+            return tileMap;
+        }
+
+        private static String withoutDelay(String action) {
+            while (action.startsWith("delay:")) {
+                int end = action.indexOf(':', 6);
+                if (end < 0) throw new IllegalArgumentException("delay needs an action to delay");
+                action = action.substring(end + 1);
+            }
+            return action;
+        }
+
+        private static boolean side(String token) {
+            if (token.equals("right")) return true;
+            if (token.equals("left")) return false;
+            throw new IllegalArgumentException("Slope side must be left or right, not " + token);
+        }
+
+        private Runnable action(String token, Runnable completeLevel, GeometryGroups groups) {
+            String[] parts = token.split(":");
+            switch (parts[0]) {
+                case "delay":
+                    int ticks = Integer.parseInt(parts[1]);
+                    Runnable action = action(token.substring(parts[0].length() + parts[1].length() + 2), completeLevel, groups);
+                    return groups != null ? groups.delayed(ticks, action) : null;
+                case "goal":
+                    return completeLevel;
+                case "clear":
+                    return groups != null ? groups.disabler(actionGroup) : null;
+                case "toggle":
+                case "hold":
+                    return groups != null ? groups.toggler(actionGroup) : null;
+                case "cycle":
+                    int period = Integer.parseInt(parts[2]);
+                    return groups != null ? groups.cycler(actionGroup, period) : null;
+                default:
+                    throw new IllegalArgumentException("Unknown button action " + token);
+            }
+        }
+    }
+
+    static Color color(String token) {
+        if (token.startsWith("#")) return new Color(Integer.parseInt(token.substring(1), 16));
+        switch (token) {
+            case "black": return Color.BLACK;
+            case "white": return Color.WHITE;
+            case "red": return Color.RED;
+            case "green": return Color.GREEN;
+            case "blue": return Color.BLUE;
+            case "cyan": return Color.CYAN;
+            case "magenta": return Color.MAGENTA;
+            case "yellow": return Color.YELLOW;
+            case "orange": return Color.ORANGE;
+            case "pink": return Color.PINK;
+            case "gray": return Color.GRAY;
+            case "darkgray": return Color.DARK_GRAY;
+            case "lightgray": return Color.LIGHT_GRAY;
+            default: throw new IllegalArgumentException("Unknown colour " + token);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Writes seeded random levels for benchmarks and soak tests, up to tens of thousands of sections (a million
+// objects). A level is a row of sections,
+// each generated on its own from the seed and its index, so the sections are built in parallel and the
+// same arguments always give the same file whatever the core count.
+//
+// Every section is solvable walking right on layer 0: it starts and ends on a pad at the same height, and the
+// steps between are platforms and mountains no further apart or higher up than a jump. A section may also
+// have a wall switched off by a button before it, an entangled quantum pair on its pads, and a ledge too high
+// to jump that the player has to climb from an echo (the echo load). Scenery on layer 1, including the
+// disappearing group, adds collision and drawing load without getting in the way; density scales it.
+// The last section ends with a button that clears the disappearing group, then the goal.
+//
+// Run: java LevelGenerator <output level file> [seed] [sections] [density] [echo load]
+// The biggest levels take tens of seconds to load as text; java LevelCompiler moves their plain platforms
+// off-heap, which loads faster and plays the same, quantum pairs included.
+public class LevelGenerator {
+    static final int SECTION_WIDTH = 1200;
+    static final int PAD_WIDTH = 200, PAD_Y = 400;
+    private static final int WALL_X = 1100; // Within the section, on its exit pad
+    static final int WALL_HEIGHT = 250;
+    // Within a jump with room to spare; LevelGeneratorTest checks them against the game's jump
+    static final int MAX_GAP = 140, MAX_RISE = 70;
+    static final int MIN_Y = 250, MAX_Y = PAD_Y + MAX_RISE; // Step tops; any of them reaches the exit pad
+    static final int ECHO_RISE = PAD_Y - MIN_Y; // Beyond a jump, within a jump from an echo's top
+    private static final int SCENERY_PER_SECTION = 8; // At density 1
+    private static final double WALL_CHANCE = 0.3;
+    private static final int QUANTUM_EVERY = 8; // In sections 4, 12, 20, ...
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: java LevelGenerator <output level file> [seed] [sections] [density] [echo load]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int sections = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        double density = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+        double echoLoad = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        long start = System.nanoTime();
+        List<String> lines = generate(seed, sections, density, echoLoad);
+        long generated = System.nanoTime();
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        System.out.printf("%d objects in %d sections: generated in %d ms, written in %d ms%n", lines.size() - 1,
+                sections, (generated - start) / 1_000_000, (System.nanoTime() - generated) / 1_000_000);
+    }
+
+    // The level file's lines: the start line, then every section's objects in order
+    public static List<String> generate(long seed, int sections, double density, double echoLoad) {
+        if (sections < 1) throw new IllegalArgumentException("A level needs at least one section");
+        if (density < 0 || echoLoad < 0 || echoLoad > 1) {
+            throw new IllegalArgumentException("Density must be at least 0 and echo load between 0 and 1");
+        }
+        String[][] parts = IntStream.range(0, sections).parallel()
+                .mapToObj(section -> new Section(seed, section, sections, density, echoLoad).build())
+                .toArray(String[][]::new);
+        int count = 1;
+        for (String[] part : parts) count += part.length;
+        List<String> lines = new ArrayList<>(count);
+        lines.add("start 0");
+        for (String[] part : parts) lines.addAll(Arrays.asList(part));
+        return lines;
+    }
+
+    private static final class Section {
+        private final SplittableRandom random;
+        private final int index, left;
+        private final boolean last;
+        private final double density, echoLoad;
+        private final List<String> lines = new ArrayList<>();
+
+        Section(long seed, int index, int sections, double density, double echoLoad) {
+            // Mixed so neighbouring seeds and sections don't give related streams
+            this.random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L);
+            this.index = index;
+            this.left = index * SECTION_WIDTH;
+            this.last = index == sections - 1;
+            this.density = density;
+            this.echoLoad = echoLoad;
+        }
+
+        String[] build() {
+            line("platform", left, PAD_Y, PAD_WIDTH, 20, "black");
+            route();
+            int exit = left + SECTION_WIDTH - PAD_WIDTH;
+            line("platform", exit, PAD_Y, PAD_WIDTH, 20, "black");
+            if (last) {
+                line("button", exit + 20, PAD_Y - 40, 40, 40, "orange", "clear");
+                line("button", exit + 120, PAD_Y - 40, 40, 40, "cyan", "goal");
+            } else if (index % QUANTUM_EVERY == QUANTUM_EVERY / 2) {
+                // Resting on the two pads; pushing either moves both
+                String pair = "pair" + index;
+                line("quantum", left + 20 + random.nextInt(80), PAD_Y - 50, 50, 50, "magenta", pair);
+                line("quantum", exit + 20 + random.nextInt(80), PAD_Y - 50, 50, 50, "magenta", pair);
+            } else if (random.nextDouble() < WALL_CHANCE) {
+                // Too high to jump; the button on the way switches it off
+                String group = "wall" + index;
+                lines.add("group " + group + " on");
+                line("button", exit + 20, PAD_Y - 40, 40, 40, "green", "toggle:" + group);
+                lines.add(format("platform", left + WALL_X, PAD_Y - WALL_HEIGHT, 20, WALL_HEIGHT, "red") + " @" + group);
+            }
+            scenery();
+            return lines.toArray(new String[0]);
+        }
+
+        // Steps from the entry pad to the exit pad, each reachable from the one before
+        private void route() {
+            int x = left + PAD_WIDTH, y = PAD_Y;
+            int end = left + SECTION_WIDTH - PAD_WIDTH;
+            boolean echoStep = random.nextDouble() < echoLoad; // Straight off the entry pad, where there's room to climb
+            while (true) {
+                int gap = 40 + random.nextInt(MAX_GAP - 40 + 1);
+                int width = 120 + random.nextInt(181);
+                if (x + gap + width + 60 > end) break; // The exit pad takes over from here
+                int top;
+                if (echoStep) {
+                    top = y - ECHO_RISE;
+                    echoStep = false;
+                } else {
+                    top = clamp(y - MAX_RISE + random.nextInt(MAX_RISE + 80 + 1), MIN_Y, MAX_Y);
+                }
+                x += gap;
+                if (random.nextInt(4) == 0) {
+                    line("mountain", x, top, width, 120, "green");
+                } else {
+                    line("platform", x, top, width, 20, "black");
+                }
+                x += width;
+                y = top;
+            }
+            if (end - x > MAX_GAP) {
+                line("platform", x + 40, y, end - x - 80, 20, "black"); // Too far to jump to the pad
+            }
+        }
+
+        // Layer 1, so the player walks through it
+        private void scenery() {
+            int count = (int) (density * SCENERY_PER_SECTION);
+            if (random.nextDouble() < density * SCENERY_PER_SECTION - count) count++;
+            for (int i = 0; i < count; i++) {
+                int x = left + random.nextInt(SECTION_WIDTH - 100), y = random.nextInt(MAX_Y);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        line("mountain", x, y, 60 + random.nextInt(140), 120, "green", 1);
+                        break;
+                    case 1:
+                        line("disappearing", x, y, 40 + random.nextInt(200), 20, "red", 1);
+                        break;
+                    default:
+                        line("platform", x, y, 20 + random.nextInt(280), 20 + random.nextInt(40), "gray", 1);
+                        break;
+                }
+            }
+        }
+
+        private void line(String kind, Object... values) {
+            lines.add(format(kind, values));
+        }
+
+        private static String format(String kind, Object... values) {
+            StringBuilder line = new StringBuilder(kind);
+            for (Object value : values) line.append(' ').append(value);
+            return line.toString();
+        }
+
+        private static int clamp(int value, int min, int max) {
+            return Math.max(min, Math.min(max, value));
+        }
+    }
+}
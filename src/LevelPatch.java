@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Difference between two versions of a level file: the lines that went away and the lines that are new.
+// Unchanged objects are not mentioned, so applying a patch costs only as much as the edit. The watcher builds
+// the patch's objects before handing it over, so the game thread only swaps them in.
+final class LevelPatch {
+    private final List<String> removedKeys;
+    private final List<LevelFile.Entry> added;
+    private final List<Collidable> addedObjects; // One per added line, in the same order; empty until built
+    private final LevelTemplate edited; // The whole edited level, for reloads and restarts; null until built
+    private final boolean rulesChanged; // Start layer, layer switching or echoes
+    private final boolean groupsChanged;
+    private final boolean geometryChanged;
+
+    private LevelPatch(List<String> removedKeys, List<LevelFile.Entry> added, List<Collidable> addedObjects,
+                       LevelTemplate edited, boolean rulesChanged, boolean groupsChanged, boolean geometryChanged) {
+        this.removedKeys = removedKeys;
+        this.added = added;
+        this.addedObjects = addedObjects;
+        this.edited = edited;
+        this.rulesChanged = rulesChanged;
+        this.groupsChanged = groupsChanged;
+        this.geometryChanged = geometryChanged;
+    }
+
+    public static LevelPatch diff(LevelFile before, LevelFile after) {
+        // Lines are compared as a multiset: identical duplicate lines are distinct objects
+        Map<String, Integer> remaining = new HashMap<>();
+        for (LevelFile.Entry entry : before.getEntries()) {
+            remaining.merge(entry.getKey(), 1, Integer::sum);
+        }
+        List<LevelFile.Entry> added = new ArrayList<>();
+        for (LevelFile.Entry entry : after.getEntries()) {
+            Integer count = remaining.get(entry.getKey());
+            if (count == null) {
+                added.add(entry);
+            } else if (count == 1) {
+                remaining.remove(entry.getKey());
+            } else {
+                remaining.put(entry.getKey(), count - 1);
+            }
+        }
+        List<String> removedKeys = new ArrayList<>();
+        for (Map.Entry<String, Integer> leftover : remaining.entrySet()) {
+            for (int i = 0; i < leftover.getValue(); i++) {
+                removedKeys.add(leftover.getKey());
+            }
+        }
+        return new LevelPatch(removedKeys, added, Collections.emptyList(), null, !before.hasSameRules(after),
+                !before.hasSameGroups(after), !before.hasSameGeometry(after));
+    }
+
+    // The patch with its objects built: the edited level's template, and unless it needs a reload, an object
+    // for every added line
+    public LevelPatch build(LevelTemplate edited, Function<LevelFile.Entry, Collidable> create) {
+        List<Collidable> objects = new ArrayList<>();
+        if (!needsReload()) {
+            for (LevelFile.Entry entry : added) objects.add(create.apply(entry));
+        }
+        return new LevelPatch(removedKeys, added, objects, edited, rulesChanged, groupsChanged, geometryChanged);
+    }
+
+    public List<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    public List<LevelFile.Entry> getAdded() {
+        return added;
+    }
+
+    public List<Collidable> getAddedObjects() {
+        return addedObjects;
+    }
+
+    public LevelTemplate getEdited() {
+        return edited;
+    }
+
+    public boolean isEmpty() {
+        return removedKeys.isEmpty() && added.isEmpty() && !rulesChanged && !groupsChanged && !geometryChanged;
+    }
+
+    // Quantum pairs are linked across lines, group ids follow the group declarations and compiled geometry
+    // is mapped with the level, so changes to any of them are applied by reloading the level
+    public boolean needsReload() {
+        if (groupsChanged || geometryChanged) return true;
+        for (String key : removedKeys) {
+            if (key.startsWith("quantum ")) return true;
+        }
+        for (LevelFile.Entry entry : added) {
+            if (entry.getKind().equals("quantum")) return true;
+        }
+        return rulesChanged;
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntFunction;
+
+// Builds level templates on a background thread ahead of time and keeps them for instant restarts
+final class LevelPreloader {
+    private final IntFunction<LevelTemplate> factory;
+    private final Map<Integer, CompletableFuture<LevelTemplate>> templates = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "level-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LevelPreloader(IntFunction<LevelTemplate> factory) {
+        this.factory = factory;
+    }
+
+    public void preload(int level) {
+        future(level);
+    }
+
+    // Returns the template, waiting for it only if it was not preloaded
+    public LevelTemplate get(int level) {
+        try {
+            return future(level).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading level " + level, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build level " + level, e.getCause());
+        }
+    }
+
+    // Replaces a level's template with one built elsewhere, such as an edited level file
+    public void put(int level, LevelTemplate template) {
+        templates.put(level, CompletableFuture.completedFuture(template));
+    }
+
+    private CompletableFuture<LevelTemplate> future(int level) {
+        CompletableFuture<LevelTemplate> future = templates.get(level);
+        if (future != null) return future;
+        CompletableFuture<LevelTemplate> build = new CompletableFuture<>();
+        future = templates.putIfAbsent(level, build);
+        if (future != null) return future;
+
+        // A failed build is dropped once it fails, so the next get() tries again instead of failing forever
+        build.whenComplete((template, failure) -> {
+            if (failure != null) templates.remove(level, build);
+        });
+        try {
+            executor.execute(() -> {
+                try {
+                    build.complete(factory.apply(level));
+                } catch (RuntimeException | Error e) {
+                    build.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            build.completeExceptionally(e);
+        }
+        return build;
+    }
+}
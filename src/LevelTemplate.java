@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Prebuilt set of objects making up a level, built once and shared by every restart. The objects are not
+// copied: restoring puts the same instances back into the game's live lists and resets the few that carry
+// runtime state, buttons and quantum platforms. Nothing else may change them.
+final class LevelTemplate {
+    public static final String DISAPPEARING = "disappearing"; // Group the disappearing platforms go in
+
+    private final int number;
+    private final int startLayer;
+    private final boolean layerSwitching; // Whether up and down switch the player's layer
+    private final boolean echoes; // Whether E makes an echo
+    private final Platform[] platforms;
+    private final Platform[] disappearingPlatforms;
+    private final Mountain[] mountains;
+    private final Terrain[] terrain;
+    private final Button[] buttons;
+    private final QuantumEntangledPlatform[] quantumPlatforms;
+    private final TileMap[] tileMaps;
+    private final Button[] goals; // Subset of buttons that complete the level
+
+    // Geometry groups, by id - 1; objects store their group's id
+    private final String[] groupNames;
+    private final boolean[] groupsEnabled;
+
+    // For levels loaded from a file: each object with the file line it came from, so edits can be patched in
+    private final Collidable[] keyedObjects;
+    private final String[] keys;
+    private final GeometryStore geometry; // Off-heap static platforms, or null
+
+    private LevelTemplate(Builder builder) {
+        this.number = builder.number;
+        this.startLayer = builder.startLayer;
+        this.layerSwitching = builder.layerSwitching;
+        this.echoes = builder.echoes;
+        this.platforms = builder.platforms.toArray(new Platform[0]);
+        this.disappearingPlatforms = builder.disappearingPlatforms.toArray(new Platform[0]);
+        this.mountains = builder.mountains.toArray(new Mountain[0]);
+        this.terrain = builder.terrain.toArray(new Terrain[0]);
+        this.buttons = builder.buttons.toArray(new Button[0]);
+        this.quantumPlatforms = builder.quantumPlatforms.toArray(new QuantumEntangledPlatform[0]);
+        this.tileMaps = builder.tileMaps.toArray(new TileMap[0]);
+        this.goals = builder.goals.toArray(new Button[0]);
+        this.groupNames = builder.groupNames.toArray(new String[0]);
+        this.groupsEnabled = new boolean[groupNames.length];
+        for (int i = 0; i < groupsEnabled.length; i++) {
+            groupsEnabled[i] = builder.groupsEnabled.get(i);
+        }
+        this.keyedObjects = builder.keyedObjects.toArray(new Collidable[0]);
+        this.keys = builder.keys.toArray(new String[0]);
+        this.geometry = builder.geometry;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public int getStartLayer() {
+        return startLayer;
+    }
+
+    public boolean allowsLayerSwitching() {
+        return layerSwitching;
+    }
+
+    public boolean allowsEchoes() {
+        return echoes;
+    }
+
+    public boolean hasQuantumPlatforms() {
+        return quantumPlatforms.length > 0;
+    }
+
+    // Shared, read-only views for headless simulations; callers must not modify the arrays
+    public Platform[] getPlatforms() {
+        return platforms;
+    }
+
+    public Platform[] getDisappearingPlatforms() {
+        return disappearingPlatforms;
+    }
+
+    public Mountain[] getMountains() {
+        return mountains;
+    }
+
+    public Terrain[] getTerrain() {
+        return terrain;
+    }
+
+    public Button[] getButtons() {
+        return buttons;
+    }
+
+    public QuantumEntangledPlatform[] getQuantumPlatforms() {
+        return quantumPlatforms;
+    }
+
+    public GeometryStore getGeometry() {
+        return geometry;
+    }
+
+    public TileMap[] getTileMaps() {
+        return tileMaps;
+    }
+
+    public int getKeyedCount() {
+        return keyedObjects.length;
+    }
+
+    public Collidable getKeyedObject(int index) {
+        return keyedObjects[index];
+    }
+
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    public int getGroupCount() {
+        return groupNames.length;
+    }
+
+    public String getGroupName(int group) {
+        return groupNames[group - 1];
+    }
+
+    public boolean isGroupEnabled(int group) {
+        return groupsEnabled[group - 1];
+    }
+
+    // The id of the named group, or GeometryGroups.NONE if the level has no such group
+    public int getGroup(String name) {
+        for (int i = 0; i < groupNames.length; i++) {
+            if (groupNames[i].equals(name)) return i + 1;
+        }
+        return GeometryGroups.NONE;
+    }
+
+    // Number of objects that go into the static collision index
+    public int getStaticCount() {
+        return platforms.length + disappearingPlatforms.length + mountains.length + terrain.length + tileMaps.length;
+    }
+
+    public boolean isGoal(Button button) {
+        for (Button goal : goals) {
+            if (goal == button) return true;
+        }
+        return false;
+    }
+
+    // Copies the level's objects into the given (cleared) lists and resets their runtime state
+    public void restore(List<Platform> platforms, List<Platform> disappearingPlatforms, List<Mountain> mountains,
+                        List<Terrain> terrain, List<Button> buttons, List<QuantumEntangledPlatform> quantumPlatforms,
+                        List<TileMap> tileMaps) {
+        copy(this.platforms, platforms);
+        copy(this.disappearingPlatforms, disappearingPlatforms);
+        copy(this.mountains, mountains);
+        copy(this.terrain, terrain);
+        copy(this.buttons, buttons);
+        copy(this.tileMaps, tileMaps);
+        copy(this.quantumPlatforms, quantumPlatforms);
+        for (QuantumEntangledPlatform platform : this.quantumPlatforms) {
+            platform.reset();
+        }
+        for (Button button : this.buttons) {
+            button.reset();
+        }
+    }
+
+    // Indexed loop rather than addAll, which would allocate a temporary array
+    private static <T> void copy(T[] source, List<T> target) {
+        target.clear();
+        for (int i = 0; i < source.length; i++) {
+            target.add(source[i]);
+        }
+    }
+
+    public static class Builder {
+        private final int number;
+        private int startLayer = 0;
+        private boolean layerSwitching = false;
+        private boolean echoes = true;
+        private final ArrayList<Platform> platforms = new ArrayList<>();
+        private final ArrayList<Platform> disappearingPlatforms = new ArrayList<>();
+        private final ArrayList<Mountain> mountains = new ArrayList<>();
+        private final ArrayList<Terrain> terrain = new ArrayList<>();
+        private final ArrayList<Button> buttons = new ArrayList<>();
+        private final ArrayList<QuantumEntangledPlatform> quantumPlatforms = new ArrayList<>();
+        private final ArrayList<TileMap> tileMaps = new ArrayList<>();
+        private final ArrayList<Button> goals = new ArrayList<>();
+        private final ArrayList<Collidable> keyedObjects = new ArrayList<>();
+        private final ArrayList<String> keys = new ArrayList<>();
+        private final ArrayList<String> groupNames = new ArrayList<>();
+        private final ArrayList<Boolean> groupsEnabled = new ArrayList<>();
+        private final HashMap<String, Integer> groupIds = new HashMap<>();
+        private GeometryStore geometry;
+
+        public Builder(int number) {
+            this.number = number;
+        }
+
+        public Builder startLayer(int layer) {
+            this.startLayer = layer;
+            return this;
+        }
+
+        public Builder layerSwitching(boolean enabled) {
+            this.layerSwitching = enabled;
+            return this;
+        }
+
+        public Builder echoes(boolean enabled) {
+            this.echoes = enabled;
+            return this;
+        }
+
+        // Declares a geometry group, or finds one declared earlier, and returns its id
+        public int group(String name, boolean enabled) {
+            Integer id = groupIds.get(name);
+            if (id != null) return id;
+            groupNames.add(name);
+            groupsEnabled.add(enabled);
+            groupIds.put(name, groupNames.size());
+            return groupNames.size();
+        }
+
+        public Builder platform(Platform platform) {
+            platforms.add(platform);
+            return this;
+        }
+
+        // A platform that is only there while its group is enabled
+        public Builder platform(Platform platform, int group) {
+            platform.group = group;
+            platforms.add(platform);
+            return this;
+        }
+
+        // A platform in the level's disappearing group, which a clear button switches off
+        public Builder disappearingPlatform(Platform platform) {
+            platform.group = group(DISAPPEARING, true);
+            disappearingPlatforms.add(platform);
+            return this;
+        }
+
+        public Builder mountain(Mountain mountain) {
+            mountains.add(mountain);
+            return this;
+        }
+
+        public Builder terrain(Terrain piece) {
+            terrain.add(piece);
+            return this;
+        }
+
+        // Remembers which source line an object was built from
+        public Builder key(Collidable collidable, String key) {
+            keyedObjects.add(collidable);
+            keys.add(key);
+            return this;
+        }
+
+        public Builder button(Button button) {
+            buttons.add(button);
+            return this;
+        }
+
+        // A button that completes the level when touched
+        public Builder goal(Button button) {
+            buttons.add(button);
+            goals.add(button);
+            return this;
+        }
+
+        public Builder quantumPlatform(QuantumEntangledPlatform platform) {
+            quantumPlatforms.add(platform);
+            return this;
+        }
+
+        public Builder tileMap(TileMap tileMap) {
+            tileMaps.add(tileMap);
+            return this;
+        }
+
+        public Builder geometry(GeometryStore geometry) {
+            this.geometry = geometry;
+            return this;
+        }
+
+        public LevelTemplate build() {
+            return new LevelTemplate(this);
+        }
+    }
+}
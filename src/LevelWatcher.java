@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Watches a level file and, whenever it is saved, parses and diffs it and builds the changed objects on its own
+// thread. Only the resulting patch is handed over, so the game thread never reads, parses or builds anything.
+final class LevelWatcher {
+    private final Path file;
+    private final Function<LevelFile, LevelTemplate> templates;
+    private final Function<LevelFile.Entry, Collidable> objects;
+    private final Consumer<LevelPatch> patches;
+    private LevelFile current; // Read by the watcher thread when it starts
+
+    public LevelWatcher(Path file, Function<LevelFile, LevelTemplate> templates,
+                        Function<LevelFile.Entry, Collidable> objects, Consumer<LevelPatch> patches) {
+        this.file = file.toAbsolutePath();
+        this.templates = templates;
+        this.objects = objects;
+        this.patches = patches;
+    }
+
+    public void start() throws IOException {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(() -> watch(watchService), "level-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            current = LevelFile.load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Level file not watched: " + e.getMessage());
+            return;
+        }
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && file.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stops with the game
+        }
+    }
+
+    private void reload() {
+        LevelFile edited;
+        LevelPatch patch;
+        try {
+            edited = LevelFile.load(file);
+            patch = LevelPatch.diff(current, edited);
+            if (patch.isEmpty()) return;
+            patch = patch.build(templates.apply(edited), objects);
+        } catch (IOException | IllegalArgumentException e) {
+            // Editors often save in several steps; keep the last good version until the file parses
+            System.err.println("Level reload skipped: " + e.getMessage());
+            return;
+        }
+        current = edited;
+        patches.accept(patch);
+    }
+}
@@ -0,0 +1,108 @@
+import java.awt.*;
+
+// The hand-built levels. Each is built once into a template and reused for every restart.
+final class Levels {
+    public static final int COUNT = 5;
+
+    private Levels() {
+    }
+
+    // Builds a level layout. Buttons complete the level or switch the game's geometry groups; both may be
+    // null for buttons that do nothing, e.g. in headless simulations.
+    public static LevelTemplate build(int level, Runnable completeLevel, GeometryGroups groups) {
+        LevelTemplate.Builder builder = new LevelTemplate.Builder(level);
+        int disappearing = builder.group(LevelTemplate.DISAPPEARING, true);
+        Runnable clearDisappearingPlatforms = groups != null ? groups.disabler(disappearing) : null;
+        switch (level) {
+            case 1:
+                // Add regular platforms
+                builder.startLayer(0);
+                builder.platform(new Platform(50, 150, 200, 20, Color.BLACK));
+                builder.platform(new Platform(100, 400, 200, 20, Color.BLACK));
+                builder.platform(new Platform(900, 400, 200, 20, Color.BLACK));
+                builder.platform(new Platform(50, 120, 20, 200, Color.BLACK));
+
+                // Add disappearing platforms
+                builder.disappearingPlatform(new Platform(300, 400, 600, 20, Color.RED));
+                builder.disappearingPlatform(new Platform(160, 170, 20, 230, Color.RED));
+
+                // Add buttons with different actions
+                builder.button(new Button(1050, 350, 40, 40, Color.GREEN, clearDisappearingPlatforms));
+                builder.goal(new Button(110, 360, 40, 40, Color.CYAN, completeLevel));
+                break;
+            case 2:
+                builder.startLayer(0).layerSwitching(true);
+                builder.platform(new Platform(50, 400, 200, 20, Color.BLACK, 0));
+                builder.mountain(new Mountain(400, 300, 100, 122, Color.GREEN, 1)); // Layer 1, opaque
+                builder.mountain(new Mountain(600, 300, 100, 122, Color.GREEN, 0)); // Layer 0, default opacity
+                builder.platform(new Platform(880, 400, 200, 20, Color.BLACK, 0));
+                builder.goal(new Button(1060, 350, 40, 40, Color.CYAN, completeLevel, 0));
+                break;
+            case 3:
+                builder.startLayer(0).layerSwitching(true);
+                // Starting platform (layer 0)
+                builder.platform(new Platform(50, 200, 200, 20, Color.BLACK, 0));
+                builder.platform(new Platform(50, 400, 200, 20, Color.BLACK, 0));
+                builder.platform(new Platform(50, 150, 20, 200, Color.BLACK));
+
+                builder.platform(new Platform(50, 200, 200, 20, Color.BLACK, 1));
+                builder.platform(new Platform(50, 400, 200, 20, Color.BLACK, 1));
+                builder.platform(new Platform(50, 150, 20, 200, Color.BLACK,1));
+
+                // Gap followed by disappearing platform (layer 1)
+                builder.disappearingPlatform(new Platform(350, 400, 200, 20, Color.RED, 1));
+
+                // Disappearing wall at the end of disappearing platform (layer 1)
+                builder.disappearingPlatform(new Platform(550, 200, 20, 220, Color.RED, 1));
+
+                // Platform behind the wall (layer 0)
+                builder.platform(new Platform(750, 400, 200, 20, Color.BLACK, 0));
+
+                // Button to clear disappearing platforms (layer 0)
+                builder.button(new Button(900, 360, 40, 40, Color.GREEN, clearDisappearingPlatforms, 0));
+
+                // Left side wall (layer 0 + 1)
+                builder.disappearingPlatform(new Platform(160, 200, 20, 220, Color.RED, 0));
+                builder.disappearingPlatform(new Platform(160, 200, 20, 220, Color.RED, 1));
+
+                // Level completion button behind left wall (layer 0)
+                builder.goal(new Button(110, 360, 40, 40, Color.CYAN, completeLevel, 0));
+                break;
+
+            case 4:
+                builder.startLayer(0).echoes(false); // The pair has to be pushed into place, not stood on an echo
+                // Starting platform
+                builder.platform(new Platform(50, 400, 400, 20, Color.BLACK, 0));
+                //gap so that we can't just push the block across and make the jump
+                builder.platform(new Platform(550, 400, 400, 20, Color.BLACK, 0));
+
+                // High platform with button
+                builder.platform(new Platform(900, 250, 200, 20, Color.BLACK, 0));
+                builder.goal(new Button(1000, 210, 40, 40, Color.CYAN, completeLevel, 0));
+
+                // Create quantum entangled platforms
+                QuantumEntangledPlatform p1 = new QuantumEntangledPlatform(950, 0, 50, 50, Color.MAGENTA);
+                QuantumEntangledPlatform p2 = new QuantumEntangledPlatform(300, 0, 50, 50, Color.MAGENTA);
+                p1.linkWith(p2);
+                builder.quantumPlatform(p1);
+                builder.quantumPlatform(p2);
+                break;
+
+            case 5:
+                builder.startLayer(0);
+                // Floor of 40 px tiles, with a strip of spikes to jump and a wall to climb over
+                TileMap tiles = new TileMap(0, 200, 30, 10, 40, Color.DARK_GRAY, 0);
+                tiles.fill(TileMap.SOLID, 1, 5, 9, 5);
+                tiles.fill(TileMap.HAZARD, 10, 5, 3, 1);
+                tiles.fill(TileMap.SOLID, 13, 5, 17, 5);
+                tiles.fill(TileMap.SOLID, 16, 3, 1, 2);
+
+                // Ledge jumped onto from below, with the goal on it
+                tiles.fill(TileMap.ONE_WAY, 22, 3, 4, 1);
+                builder.tileMap(tiles);
+                builder.goal(new Button(960, 280, 40, 40, Color.CYAN, completeLevel, 0));
+                break;
+        }
+        return builder.build();
+    }
+}
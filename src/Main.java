@@ -1,7 +1,9 @@
+import javax.swing.SwingUtilities;
+
 public class Main
 {
     public static void main(String[] args)
     {
-        new EchoJumpGame();
+        SwingUtilities.invokeLater(EchoJumpGame::new);
     }
 }
\ No newline at end of file
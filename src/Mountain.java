@@ -0,0 +1,59 @@
+import java.awt.*;
+
+class Mountain extends SurfaceCollidable {
+    private Color color;
+
+    public Mountain(int x, int y, int width, int height, Color color) {
+        this(x, y, width, height, color, 0);
+    }
+
+    public Mountain(int x, int y, int width, int height, Color color, int layer) {
+        super(x, y, width, height, layer, buildSurface(width, height));
+        this.color = color;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    // Flat top over the full width, underside following the half-ellipse that draw() paints below the block
+    private static Heightfield buildSurface(int width, int height) {
+        int[] top = new int[width];
+        int[] bottom = new int[width];
+        double radiusX = width / 2.0;
+        double radiusY = (height / 2) / 2.0;
+        for (int column = 0; column < width; column++) {
+            double dx = (column + 0.5 - radiusX) / radiusX;
+            int arcDepth = (int) Math.round(radiusY * Math.sqrt(Math.max(0, 1 - dx * dx)));
+            bottom[column] = height / 2 + arcDepth;
+        }
+        return new Heightfield(top, bottom);
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
+    {
+        if (this.layer != playerLayer) {
+            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+            g.setColor(opaqueColor);
+        } else {
+            g.setColor(color); // Default color for same layer
+        }
+        g.fillRect(x, y, width, height / 2); // Draw upper rectangle
+        g.fillArc(x, y + height / 4, width, height / 2, 180, 180);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        int argb = FrameBuffer.layerColor(color, layer, playerLayer);
+        target.fillRect(x, y, width, height / 2, argb);
+        target.fillLowerHalfEllipse(x, y + height / 4, width, height / 2, argb);
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        int argb = FrameBuffer.layerColor(color, layer, playerLayer);
+        commands.fillRect(x, y, width, height / 2, argb);
+        commands.fillLowerHalfEllipse(x, y + height / 4, width, height / 2, argb);
+    }
+}
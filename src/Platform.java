@@ -0,0 +1,54 @@
+import java.awt.*;
+
+class Platform extends Collidable {
+    private Color color;
+
+    public Platform(int x, int y, int width, int height, Color color) {
+        this(x, y, width, height, color, 0);
+    }
+
+    public Platform(int x, int y, int width, int height, Color color, int layer) {
+        super(x, y, width, height, layer);
+        this.color = color;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) // Implementation of modified draw
+    {
+        if (this.layer != playerLayer) {
+            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+            g.setColor(opaqueColor);
+        } else {
+            g.setColor(color); // Default color for same layer
+        }
+        g.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        target.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        commands.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return super.isCollidingWithTop(objX, objY, objWidth, objHeight, playerLayer) &&
+                objX + 5 < x + width && // Left edge of player is to the left of the platform's right edge
+                objX + objWidth - 5 > x && // Right edge of player is to the right of the platform's left edge
+                objY + objHeight >= y && // Player's bottom edge is at or below the platform's top edge
+                objY + objHeight <= y + 5; // Player's bottom edge is within 5 pixels of the platform's top edge
+    }
+
+    @Override
+    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        return super.isCollidingWithSide(objX, objY, objWidth, objHeight, playerLayer);
+    }
+}
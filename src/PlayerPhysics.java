@@ -0,0 +1,48 @@
+// The player's movement rules, shared by EchoMovementGame and BatchEnvironment so a bot trains on the same
+// physics the game plays: the sizes and forces, how input and gravity set the velocity each tick, how a move
+// is cut into one-pixel substeps, and when the player has fallen out of the level.
+final class PlayerPhysics {
+    static final int WIDTH = 50, HEIGHT = 50;
+    static final int JUMP_FORCE = -15;
+    static final int GRAVITY = 1; // Added to velocityY every tick in the air
+    static final int RUN_SPEED = 10;
+    static final int START_X = 100, START_Y = 100;
+    static final int FALL_LIMIT = 600; // Lower than this and the player is dead
+
+    static final int ECHO_WIDTH = 50, ECHO_HEIGHT = 50;
+    static final int PLACED_ECHO_LIFETIME = 200; // Ticks an Echo Jump echo stays
+
+    private PlayerPhysics() {
+    }
+
+    // Holding both directions cancels out
+    static int runVelocity(boolean left, boolean right) {
+        if (left && !right) return -RUN_SPEED;
+        if (right && !left) return RUN_SPEED;
+        return 0;
+    }
+
+    static int fallVelocity(int velocityY, boolean onGround) {
+        return onGround ? velocityY : velocityY + GRAVITY;
+    }
+
+    // Moves are tested a pixel at a time, so nothing is thin enough to pass through
+    static int substeps(int velocity) {
+        return Math.abs(velocity) + 1;
+    }
+
+    // Where substep i of steps puts a move from initial to target; the last one reaches the target
+    static int substep(int initial, int target, int i, int steps) {
+        float progress = (float) i / steps;
+        return initial + (int) ((target - initial) * progress);
+    }
+
+    static boolean hasFallen(int y) {
+        return y > FALL_LIMIT;
+    }
+
+    // Up and down both flip between the two layers
+    static int otherLayer(int layer) {
+        return layer == 0 ? 1 : 0;
+    }
+}
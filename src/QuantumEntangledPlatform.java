@@ -0,0 +1,169 @@
+import java.awt.*;
+import java.util.ArrayList;
+
+class QuantumEntangledPlatform extends Collidable {
+    private Color color;
+    private QuantumEntangledPlatform linkedPlatform;
+    private int originalX, originalY;
+    private int velocityY = 0;
+    private boolean onGround = false;
+
+    public QuantumEntangledPlatform(int x, int y, int width, int height, Color color) {
+        super(x, y, width, height);
+        this.color = color;
+        this.originalX = x;
+        this.originalY = y;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public QuantumEntangledPlatform getPartner() {
+        return linkedPlatform;
+    }
+
+    // Where the platform starts, and goes back to when it falls or the level restarts
+    public int getStartX() {
+        return originalX;
+    }
+
+    public int getStartY() {
+        return originalY;
+    }
+
+    public void linkWith(QuantumEntangledPlatform other) {
+        this.linkedPlatform = other;
+        other.linkedPlatform = this;
+    }
+
+    public void moveHorizontally(int dx) {
+        this.x += dx;
+        // When pushed, we should check if we're still on ground
+        checkIfStillOnGround = true;
+        if (linkedPlatform != null) {
+            linkedPlatform.x += dx;
+            linkedPlatform.checkIfStillOnGround = true;
+        }
+    }
+
+    private boolean checkIfStillOnGround = false;
+    private final ContactCache contacts = new ContactCache();
+    private final ArrayList<Collidable> nearby = new ArrayList<>();
+    private static final int LANDING_TOLERANCE = 10;
+
+    // index holds the level's static objects and geometry its compiled platforms, or null. The platforms
+    // among them hold quantum platforms up; what a platform stood on last is tried before either is queried.
+    public void update(SpatialGrid index, GeometryStore geometry, GeometryGroups groups, boolean timeFrozen) {
+        // Check if we're still on ground after being pushed
+        if (checkIfStillOnGround) {
+            Collidable support = contacts.getSupport();
+            boolean stillOnGround = support != null && groups.isEnabled(support) && isLandingOn(support);
+            if (!stillOnGround) {
+                Collidable landing = findLanding(index, groups);
+                if (landing != null) {
+                    contacts.setSupport(landing);
+                    stillOnGround = true;
+                }
+            }
+            if (!stillOnGround && geometry != null && geometry.findSupport(x, y, width, height) >= 0) {
+                contacts.setSupport(null);
+                stillOnGround = true;
+            }
+            if (!stillOnGround) {
+                onGround = false;
+            }
+            checkIfStillOnGround = false;
+        }
+
+        // Apply gravity if not on ground
+        if (!onGround && !timeFrozen) {
+            velocityY += 1; // Gravity
+            int newY = y + velocityY;
+            boolean landed = false;
+
+            // Check if platform lands on something
+            Collidable landing = velocityY >= 0 ? findLanding(index, groups) : null;
+            if (landing != null) {
+                newY = landing.y - height;
+                velocityY = 0;
+                onGround = true;
+                landed = true;
+                contacts.setSupport(landing);
+            }
+
+            int record = !landed && velocityY >= 0 && geometry != null ? geometry.findSupport(x, y, width, height) : -1;
+            if (record >= 0) {
+                newY = geometry.y(record) - height;
+                velocityY = 0;
+                onGround = true;
+                landed = true;
+                contacts.setSupport(null); // Records never move or switch off
+            }
+            if (!landed) {
+                onGround = false;
+                contacts.setSupport(null);
+            }
+
+            y = newY;
+
+            // Reset if fallen off screen
+            if (y > 600) {
+                reset();
+                linkedPlatform.reset();
+            }
+        }
+    }
+
+    // The first enabled platform this one is resting on, from the few objects around its bottom edge
+    private Collidable findLanding(SpatialGrid index, GeometryGroups groups) {
+        nearby.clear();
+        contacts.queryNearby(index, groups, x, y + height - LANDING_TOLERANCE, width, LANDING_TOLERANCE + 1, nearby);
+        for (int i = 0; i < nearby.size(); i++) {
+            Collidable collidable = nearby.get(i);
+            if (collidable instanceof Platform && isLandingOn(collidable)) return collidable;
+        }
+        return null;
+    }
+
+    private boolean isLandingOn(Collidable other) {
+        return x < other.x + other.width &&
+                x + width > other.x &&
+                y + height >= other.y &&
+                y + height <= other.y + LANDING_TOLERANCE;
+    }
+
+    public void reset() {
+        this.x = originalX;
+        this.y = originalY;
+        this.velocityY = 0;
+        this.onGround = false;
+        this.checkIfStillOnGround = false;
+        this.contacts.clear();
+    }
+
+    public void forgetContact(Collidable collidable) {
+        contacts.forget(collidable);
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) {
+        if (this.layer != playerLayer) {
+            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+            g.setColor(opaqueColor);
+        } else {
+            g.setColor(color);
+        }
+        g.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        target.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        commands.fillRect(x, y, width, height, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+}
@@ -0,0 +1,98 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Compares the Java2D draw() path with the software rasterizer on a synthetic scene.
+// Run headless: java -Djava.awt.headless=true RenderBenchmark
+public class RenderBenchmark {
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 300;
+
+    public static void main(String[] args) {
+        int[][] sizes = {{1500, 600}, {3840, 2160}};
+        for (int[] size : sizes) {
+            ArrayList<Collidable> scene = buildScene(size[0], size[1], new Random(42));
+            System.out.printf("%dx%d, %d objects%n", size[0], size[1], scene.size());
+            report("java2d", measureJava2D(scene, size[0], size[1]));
+            report("software", measureSoftware(new SoftwareRenderer(false), scene, size[0], size[1]));
+            report("software, banded", measureSoftware(new SoftwareRenderer(true), scene, size[0], size[1]));
+
+            // Mostly static scene: only a player-sized dirty rectangle changes between frames
+            Rectangle dirty = new Rectangle(size[0] / 2, size[1] / 2, 62, 62);
+            report("java2d, dirty", measureJava2D(scene, size[0], size[1], dirty));
+            report("software, dirty", measureSoftware(new SoftwareRenderer(false), scene, size[0], size[1], dirty));
+        }
+    }
+
+    // Roughly a hand-built level scaled to the screen: opaque and translucent (other layer) geometry plus echoes
+    private static ArrayList<Collidable> buildScene(int width, int height, Random random) {
+        ArrayList<Collidable> scene = new ArrayList<>();
+        int scale = Math.max(1, width * height / (1500 * 600));
+        for (int i = 0; i < 40 * scale; i++) {
+            scene.add(new Platform(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(300),
+                    20 + random.nextInt(40), Color.BLACK, random.nextInt(2)));
+        }
+        for (int i = 0; i < 6 * scale; i++) {
+            scene.add(new Mountain(random.nextInt(width), random.nextInt(height), 100, 122, Color.GREEN, random.nextInt(2)));
+        }
+        for (int i = 0; i < 20 * scale; i++) {
+            // Echo-sized grey boxes; echoes themselves are entity rows, not Collidables
+            scene.add(new Platform(random.nextInt(width), random.nextInt(height), 50, 50, Color.GRAY, random.nextInt(2)));
+        }
+        return scene;
+    }
+
+    private static double measureJava2D(ArrayList<Collidable> scene, int width, int height) {
+        return measureJava2D(scene, width, height, new Rectangle(0, 0, width, height));
+    }
+
+    // Mirrors EchoMovementGame.paintComponent: clear and redraw only what overlaps the clip
+    private static double measureJava2D(ArrayList<Collidable> scene, int width, int height, Rectangle clip) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Runnable frame = () -> {
+            Graphics2D g = image.createGraphics();
+            g.setClip(clip);
+            g.setColor(Color.WHITE);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            for (Collidable collidable : scene) {
+                if (clip.intersects(collidable.x, collidable.y, collidable.width, collidable.height)) {
+                    collidable.draw(g, 0);
+                }
+            }
+            g.dispose();
+        };
+        return measure(frame);
+    }
+
+    private static double measureSoftware(SoftwareRenderer renderer, ArrayList<Collidable> scene, int width, int height) {
+        return measureSoftware(renderer, scene, width, height, new Rectangle(0, 0, width, height));
+    }
+
+    private static double measureSoftware(SoftwareRenderer renderer, ArrayList<Collidable> scene, int width, int height,
+                                          Rectangle clip) {
+        renderer.render(width, height, target -> target.clear(0xFFFFFFFF)); // First frame is always full
+        Runnable frame = () -> renderer.render(width, height, clip.x, clip.y, clip.width, clip.height, target -> {
+            target.clear(0xFFFFFFFF);
+            for (int i = 0; i < scene.size(); i++) {
+                scene.get(i).rasterize(target, 0);
+            }
+        });
+        return measure(frame);
+    }
+
+    private static double measure(Runnable frame) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            frame.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_FRAMES;
+    }
+
+    private static void report(String name, double millisPerFrame) {
+        System.out.printf("  %-18s %8.3f ms/frame%n", name, millisPerFrame);
+    }
+}
@@ -0,0 +1,248 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// Compact snapshot of one frame's draw ops, written by the simulation and replayed by the renderer.
+// Storage is parallel primitive arrays that only grow, so emitting a frame allocates nothing once warm.
+final class RenderCommandList {
+    public static final int RECT = 0;
+    public static final int HALF_ELLIPSE = 1; // Lower half of the ellipse in the box, like fillArc(..., 180, 180)
+    public static final int SHAPE = 2;        // Immutable level geometry that draws/rasterizes itself
+    public static final int OUTLINE = 3;      // One pixel border just inside the box
+
+    private static final int SEQUENCE_BITS = 20;
+    private static final int MAX_COMMANDS = 1 << SEQUENCE_BITS;
+    private static final int BAND_SHIFT = 53; // Above the translucency bit and the colour
+    private static final int MAX_BAND = 63;
+
+    private int size = 0;
+    private int[] ops = new int[256];
+    private int[] xs = new int[256], ys = new int[256], widths = new int[256], heights = new int[256];
+    private int[] colors = new int[256];
+    private Collidable[] shapes = new Collidable[256];
+    private long[] sortKeys = new long[256];
+    private boolean[] statics = new boolean[256];
+    private byte[] bands = new byte[256];
+    private boolean emittingStatic;
+    private int band;
+    private int playerLayer;
+    private volatile long frame; // Publish count; the renderer compares it across threads
+
+    // HUD values, copied so the renderer never reads the simulation's fields
+    public static final int HUD_ON_GROUND = 0, HUD_CAN_JUMP = 1, HUD_JUMPING = 2, HUD_VELOCITY_Y = 3,
+            HUD_PLAYER_X = 4, HUD_PLAYER_Y = 5, HUD_LAYER = 6, HUD_LEVEL = 7, HUD_LEVEL_COMPLETE = 8;
+    public final int[] hud = new int[9];
+
+    // Java2D colours by ARGB, so replaying a frame does not create Color objects
+    private final int[] cachedArgb = new int[64];
+    private final Color[] cachedColors = new Color[64];
+
+    public void reset(int playerLayer) {
+        this.size = 0;
+        this.playerLayer = playerLayer;
+        this.emittingStatic = false;
+        this.band = 0;
+    }
+
+    // Commands added from now on draw over everything added before; sort() only reorders within a band.
+    // Past the last band, commands share it.
+    public void nextBand() {
+        if (band < MAX_BAND) band++;
+    }
+
+    // Commands added while set are level geometry, which only changes with the level, its groups or the
+    // player's layer; off-layer ones can then be drawn from a cached image
+    public void setStatic(boolean emittingStatic) {
+        this.emittingStatic = emittingStatic;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    void setFrame(long frame) {
+        this.frame = frame;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPlayerLayer() {
+        return playerLayer;
+    }
+
+    public void fillRect(int x, int y, int width, int height, int argb) {
+        add(RECT, x, y, width, height, argb, null);
+    }
+
+    public void fillLowerHalfEllipse(int x, int y, int width, int height, int argb) {
+        add(HALF_ELLIPSE, x, y, width, height, argb, null);
+    }
+
+    public void strokeRect(int x, int y, int width, int height, int argb) {
+        add(OUTLINE, x, y, width, height, argb, null);
+    }
+
+    // The argb only decides where the shape sorts; the shape picks its own colours when drawn
+    public void shape(Collidable shape, int argb) {
+        add(SHAPE, shape.x, shape.y, shape.width, shape.height, argb, shape);
+    }
+
+    private void add(int op, int x, int y, int width, int height, int argb, Collidable shape) {
+        if (size == ops.length) grow();
+        ops[size] = op;
+        xs[size] = x;
+        ys[size] = y;
+        widths[size] = width;
+        heights[size] = height;
+        colors[size] = argb;
+        shapes[size] = shape;
+        statics[size] = emittingStatic;
+        bands[size] = (byte) band;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = ops.length * 2;
+        if (capacity > MAX_COMMANDS) {
+            throw new IllegalStateException("More than " + MAX_COMMANDS + " render commands in one frame");
+        }
+        ops = Arrays.copyOf(ops, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        shapes = Arrays.copyOf(shapes, capacity);
+        sortKeys = Arrays.copyOf(sortKeys, capacity);
+        statics = Arrays.copyOf(statics, capacity);
+        bands = Arrays.copyOf(bands, capacity);
+    }
+
+    // Orders each band opaque-first, then by colour, keeping emission order within a colour, so the
+    // renderer switches colour (and blending mode) as rarely as possible while the bands keep painter's order
+    public void sort() {
+        for (int i = 0; i < size; i++) {
+            long translucent = (colors[i] >>> 24) == 255 ? 0 : 1;
+            sortKeys[i] = ((long) bands[i] << BAND_SHIFT) | (translucent << 52)
+                    | ((colors[i] & 0xFFFFFFFFL) << SEQUENCE_BITS) | i;
+        }
+        Arrays.sort(sortKeys, 0, size);
+    }
+
+    private int commandAt(int position) {
+        return (int) (sortKeys[position] & (MAX_COMMANDS - 1));
+    }
+
+    // Replays the frame through Java2D, skipping commands that miss the clip. With an off-layer image, the
+    // faded level geometry is left out and the image is drawn once, where the first of it would have gone.
+    public void drawTo(Graphics g, Rectangle clip, BufferedImage offLayer) {
+        int currentArgb = 0;
+        boolean colorSet = false;
+        boolean offLayerDrawn = offLayer == null;
+        for (int position = 0; position < size; position++) {
+            int i = commandAt(position);
+            if (offLayer != null && isOffLayerGeometry(i)) {
+                if (!offLayerDrawn) g.drawImage(offLayer, 0, 0, null);
+                offLayerDrawn = true;
+                continue;
+            }
+            if (!clip.intersects(xs[i], ys[i], widths[i], heights[i])) continue;
+
+            if (ops[i] == SHAPE) {
+                shapes[i].draw(g, playerLayer);
+                colorSet = false;
+                continue;
+            }
+            if (!colorSet || colors[i] != currentArgb) {
+                currentArgb = colors[i];
+                g.setColor(colorFor(currentArgb));
+                colorSet = true;
+            }
+            drawCommand(g, i);
+        }
+        if (!offLayerDrawn) g.drawImage(offLayer, 0, 0, null);
+    }
+
+    // Identifies the frame's off-layer geometry; equal keys mean an image of it can be reused
+    public long offLayerKey() {
+        long key = playerLayer;
+        for (int position = 0; position < size; position++) {
+            int i = commandAt(position);
+            if (!isOffLayerGeometry(i)) continue;
+            key = mix(key, ops[i]);
+            key = mix(key, xs[i]);
+            key = mix(key, ys[i]);
+            key = mix(key, widths[i]);
+            key = mix(key, heights[i]);
+            key = mix(key, colors[i]);
+            key = mix(key, System.identityHashCode(shapes[i]));
+        }
+        return key;
+    }
+
+    // Draws only the off-layer geometry, whole, for caching as an image
+    public void drawOffLayerTo(Graphics g) {
+        for (int position = 0; position < size; position++) {
+            int i = commandAt(position);
+            if (!isOffLayerGeometry(i)) continue;
+            if (ops[i] == SHAPE) {
+                shapes[i].draw(g, playerLayer);
+            } else {
+                g.setColor(colorFor(colors[i]));
+                drawCommand(g, i);
+            }
+        }
+    }
+
+    private boolean isOffLayerGeometry(int i) {
+        return statics[i] && (colors[i] >>> 24) != 255;
+    }
+
+    private void drawCommand(Graphics g, int i) {
+        if (ops[i] == RECT) {
+            g.fillRect(xs[i], ys[i], widths[i], heights[i]);
+        } else if (ops[i] == OUTLINE) {
+            g.drawRect(xs[i], ys[i], widths[i] - 1, heights[i] - 1);
+        } else {
+            g.fillArc(xs[i], ys[i], widths[i], heights[i], 180, 180);
+        }
+    }
+
+    private static long mix(long key, int value) {
+        return (key ^ value) * 0x9E3779B97F4A7C15L;
+    }
+
+    // Replays the frame into one band of the software frame buffer
+    public void rasterizeTo(FrameBuffer target) {
+        for (int position = 0; position < size; position++) {
+            int i = commandAt(position);
+            if (ys[i] >= target.getClipBottom() || ys[i] + heights[i] <= target.getClipTop()) continue;
+
+            switch (ops[i]) {
+                case RECT:
+                    target.fillRect(xs[i], ys[i], widths[i], heights[i], colors[i]);
+                    break;
+                case HALF_ELLIPSE:
+                    target.fillLowerHalfEllipse(xs[i], ys[i], widths[i], heights[i], colors[i]);
+                    break;
+                case OUTLINE:
+                    target.strokeRect(xs[i], ys[i], widths[i], heights[i], colors[i]);
+                    break;
+                default:
+                    shapes[i].rasterize(target, playerLayer);
+                    break;
+            }
+        }
+    }
+
+    private Color colorFor(int argb) {
+        int slot = (argb ^ (argb >>> 16)) & (cachedArgb.length - 1);
+        if (cachedColors[slot] == null || cachedArgb[slot] != argb) {
+            cachedArgb[slot] = argb;
+            cachedColors[slot] = new Color(argb, true);
+        }
+        return cachedColors[slot];
+    }
+}
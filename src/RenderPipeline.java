@@ -0,0 +1,39 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+// Triple buffer of render command lists: the simulation fills the back list while the renderer replays
+// the front one, and the latest finished list waits in between. Each side only ever swaps its own list
+// with the waiting one, so publishing never waits for a paint and a paint never waits for a tick.
+final class RenderPipeline {
+    private RenderCommandList back = new RenderCommandList();   // Simulation thread only
+    private final AtomicReference<RenderCommandList> ready = new AtomicReference<>(new RenderCommandList());
+    private RenderCommandList front = new RenderCommandList();  // Renderer only, under paintLock
+    private final Object paintLock = new Object(); // The prewarm thread paints too
+    private long published;
+
+    // Only the simulation thread writes to the back list
+    public RenderCommandList back() {
+        return back;
+    }
+
+    // Hands the finished back list over and takes whichever list is waiting as the next back list: the
+    // frame before, if the renderer skipped it, or the front list the renderer has finished with
+    public void publish() {
+        back.setFrame(++published);
+        back = ready.getAndSet(back);
+    }
+
+    // Runs the renderer against the latest published frame, or the last one again if nothing newer came
+    public void paint(FrameConsumer consumer) {
+        synchronized (paintLock) {
+            // Only the simulation puts newer frames in, so one seen here is still there, or replaced by a newer one
+            if (ready.get().getFrame() > front.getFrame()) {
+                front = ready.getAndSet(front);
+            }
+            consumer.paint(front);
+        }
+    }
+
+    interface FrameConsumer {
+        void paint(RenderCommandList frame);
+    }
+}
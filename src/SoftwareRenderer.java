@@ -0,0 +1,67 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Rendering backend that rasterizes the scene straight into a BufferedImage's int[] and blits it once
+final class SoftwareRenderer {
+    private final boolean parallel;
+    private BufferedImage image;
+    private FrameBuffer[] bands = new FrameBuffer[0];
+
+    public SoftwareRenderer(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    // Rasterizes one frame; the scene callback runs once per band and must only draw into the band it is given
+    public BufferedImage render(int width, int height, Consumer<FrameBuffer> scene) {
+        return render(width, height, 0, 0, width, height, scene);
+    }
+
+    // Re-rasterizes only the given region; the rest of the image keeps the previous frame
+    public BufferedImage render(int width, int height, int clipX, int clipY, int clipWidth, int clipHeight,
+                                Consumer<FrameBuffer> scene) {
+        if (ensureSize(Math.max(1, width), Math.max(1, height))) {
+            clipX = 0;
+            clipY = 0;
+            clipWidth = width;
+            clipHeight = height;
+        }
+        for (FrameBuffer band : bands) {
+            band.setClip(clipX, clipY, clipWidth, clipHeight);
+        }
+        if (bands.length == 1) {
+            scene.accept(bands[0]);
+        } else {
+            Arrays.stream(bands).filter(band -> !band.isClippedAway()).parallel().forEach(scene);
+        }
+        return image;
+    }
+
+    // Draws the last rendered frame onto the component
+    public void blit(Graphics g) {
+        if (image != null) {
+            g.drawImage(image, 0, 0, null);
+        }
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Returns true when the image had to be (re)created and so holds no previous frame
+    private boolean ensureSize(int width, int height) {
+        if (image != null && image.getWidth() == width && image.getHeight() == height) return false;
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int bandCount = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, height / 64)) : 1;
+        int bandHeight = (height + bandCount - 1) / bandCount;
+        bands = new FrameBuffer[bandCount];
+        for (int i = 0; i < bandCount; i++) {
+            bands[i] = new FrameBuffer(pixels, width, height, i * bandHeight, (i + 1) * bandHeight);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Broadphase index for static level geometry: a spatially hashed uniform grid. Insert and remove only touch
+// the cells an object covers, so a level can be patched without rebuilding the index. Queries write nothing,
+// so once built the index can be shared by threads, as BatchEnvironment's workers do.
+final class SpatialGrid {
+    private static final int MAX_CELLS_PER_OBJECT = 64; // Bigger objects go to a list checked on every query
+    private static final int TARGET_OBJECTS_PER_BUCKET = 4;
+
+    private final int cellShift;
+    private int mask;
+    private Collidable[][] buckets;
+    private int[] counts;
+    private final ArrayList<Collidable> large = new ArrayList<>();
+    private int size = 0;
+    private int version = 0; // Bumped on every change, so cached query results can tell they are stale
+
+    public SpatialGrid(int cellSize, int expectedObjects) {
+        this.cellShift = 31 - Integer.numberOfLeadingZeros(Math.max(1, cellSize));
+        allocate(expectedObjects);
+    }
+
+    private void allocate(int expectedObjects) {
+        int bucketCount = Integer.highestOneBit(Math.max(64, expectedObjects / TARGET_OBJECTS_PER_BUCKET) * 2 - 1);
+        buckets = new Collidable[bucketCount][];
+        counts = new int[bucketCount];
+        mask = bucketCount - 1;
+    }
+
+    // Empties the index, growing the bucket table first if the next level is expected to be much bigger
+    public void clear(int expectedObjects) {
+        if (expectedObjects / TARGET_OBJECTS_PER_BUCKET > buckets.length) {
+            allocate(expectedObjects);
+        } else {
+            for (int i = 0; i < buckets.length; i++) {
+                if (counts[i] > 0) {
+                    Arrays.fill(buckets[i], 0, counts[i], null);
+                    counts[i] = 0;
+                }
+            }
+        }
+        large.clear();
+        size = 0;
+        version++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public void insert(Collidable collidable) {
+        size++;
+        version++;
+        int firstColumn = collidable.x >> cellShift, lastColumn = (collidable.x + collidable.width - 1) >> cellShift;
+        int firstRow = collidable.y >> cellShift, lastRow = (collidable.y + collidable.height - 1) >> cellShift;
+        if ((long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > MAX_CELLS_PER_OBJECT) {
+            large.add(collidable);
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                add(bucketOf(column, row), collidable);
+            }
+        }
+    }
+
+    // The object must still have the bounds it was inserted with
+    public void remove(Collidable collidable) {
+        version++;
+        int firstColumn = collidable.x >> cellShift, lastColumn = (collidable.x + collidable.width - 1) >> cellShift;
+        int firstRow = collidable.y >> cellShift, lastRow = (collidable.y + collidable.height - 1) >> cellShift;
+        if ((long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > MAX_CELLS_PER_OBJECT) {
+            if (large.remove(collidable)) size--;
+            return;
+        }
+        boolean removed = false;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                removed |= removeFrom(bucketOf(column, row), collidable);
+            }
+        }
+        if (removed) size--;
+    }
+
+    // Appends every indexed object whose bounds overlap the box, each once: from the first of the object's
+    // cells inside the box, which is the only one it is reported from
+    public void query(int x, int y, int width, int height, ArrayList<Collidable> out) {
+        for (int i = 0; i < large.size(); i++) {
+            Collidable collidable = large.get(i);
+            if (overlaps(collidable, x, y, width, height)) out.add(collidable);
+        }
+
+        int firstColumn = x >> cellShift, lastColumn = (x + width - 1) >> cellShift;
+        int firstRow = y >> cellShift, lastRow = (y + height - 1) >> cellShift;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int bucket = bucketOf(column, row);
+                Collidable[] entries = buckets[bucket];
+                for (int i = 0; i < counts[bucket]; i++) {
+                    Collidable collidable = entries[i];
+                    // Objects span several cells and distant cells can share a bucket, so filter both
+                    if (overlaps(collidable, x, y, width, height)
+                            && column == Math.max(collidable.x >> cellShift, firstColumn)
+                            && row == Math.max(collidable.y >> cellShift, firstRow)) {
+                        out.add(collidable);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean overlaps(Collidable collidable, int x, int y, int width, int height) {
+        return collidable.x < x + width && collidable.x + collidable.width > x &&
+                collidable.y < y + height && collidable.y + collidable.height > y;
+    }
+
+    private int bucketOf(int column, int row) {
+        int hash = column * 0x9E3779B1 ^ row * 0x85EBCA77;
+        return (hash ^ (hash >>> 15)) & mask;
+    }
+
+    // Two cells of one object can share a bucket; the object goes in once, as the cells are added together
+    private void add(int bucket, Collidable collidable) {
+        Collidable[] entries = buckets[bucket];
+        if (counts[bucket] > 0 && entries[counts[bucket] - 1] == collidable) return;
+        if (entries == null) {
+            entries = buckets[bucket] = new Collidable[4];
+        } else if (counts[bucket] == entries.length) {
+            entries = buckets[bucket] = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[counts[bucket]++] = collidable;
+    }
+
+    private boolean removeFrom(int bucket, Collidable collidable) {
+        Collidable[] entries = buckets[bucket];
+        for (int i = 0; i < counts[bucket]; i++) {
+            if (entries[i] == collidable) {
+                entries[i] = entries[--counts[bucket]];
+                entries[counts[bucket]] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+import java.lang.management.ManagementFactory;
+
+// Milliseconds from JVM start to each startup milestone, printed as one line once the first simulated frame
+// is on screen; milestones reached after that are printed as they come
+final class StartupProfile {
+    private final String mode;
+    private final StringBuilder milestones = new StringBuilder();
+    private volatile boolean published;
+    private boolean reported;
+
+    public StartupProfile(String mode) {
+        this.mode = mode;
+    }
+
+    public synchronized void mark(String milestone) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (reported) {
+            System.out.println("startup: " + milestone + " " + uptime + " ms");
+        } else {
+            milestones.append(milestones.length() == 0 ? "" : ", ").append(milestone).append(' ').append(uptime).append(" ms");
+        }
+    }
+
+    // Simulation thread, after every publish; only the first one is recorded
+    public void framePublished() {
+        if (published) return;
+        mark("first tick");
+        published = true;
+    }
+
+    // Renderer, after every paint; paints of the empty frame before the first tick don't count
+    public synchronized void framePainted() {
+        if (!published || reported) return;
+        mark("first frame");
+        reported = true;
+        System.out.println("startup (" + mode + " boot): " + milestones);
+    }
+}
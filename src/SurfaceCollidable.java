@@ -0,0 +1,61 @@
+// Collidable whose solid shape is described per column by a Heightfield (curves, slopes, polylines)
+abstract class SurfaceCollidable extends Collidable {
+    protected static final int LANDING_TOLERANCE = 10;
+    protected final Heightfield surface;
+
+    public SurfaceCollidable(int x, int y, int width, int height, int layer, Heightfield surface) {
+        super(x, y, width, height, layer);
+        this.surface = surface;
+    }
+
+    @Override
+    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        if (objX >= x + width || objX + objWidth <= x) return false;
+
+        // The surface under the object's centre decides where it stands
+        int surfaceY = getSurfaceY(objX, objY, objWidth, objHeight);
+        int objBottomY = objY + objHeight;
+        return objBottomY >= surfaceY && objBottomY <= surfaceY + LANDING_TOLERANCE;
+    }
+
+    @Override
+    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        if (objX >= x + width || objX + objWidth <= x) return false;
+
+        int from = Math.max(objX, x) - x;
+        int to = Math.min(objX + objWidth, x + width) - 1 - x;
+        return objY + objHeight > y + surface.minTop(from, to) &&
+                objY < y + surface.maxBottom(from, to);
+    }
+
+    @Override
+    public int getSurfaceY(int objX, int objY, int objWidth, int objHeight) {
+        return y + surface.topAt(objX + objWidth / 2 - x);
+    }
+
+    // The face is the first column, coming from the object's side, whose solid overlaps the object's rows,
+    // so a cliff in the middle of the piece stops the object at the cliff rather than at the piece's edge.
+    // Ground the object's feet have sunk into by less than the landing tolerance is not a face.
+    @Override
+    public int getLeftFaceX(int objX, int objY, int objWidth, int objHeight) {
+        int from = Math.max(objX, x) - x, to = Math.min(objX + objWidth, x + width) - 1 - x;
+        int column = surface.firstOverlapping(from, to, objY - y, objY + objHeight - LANDING_TOLERANCE - y);
+        if (column < 0) column = surface.firstOverlapping(from, to, objY - y, objY + objHeight - y);
+        return column < 0 ? objX + objWidth : x + column;
+    }
+
+    @Override
+    public int getRightFaceX(int objX, int objY, int objWidth, int objHeight) {
+        int from = Math.max(objX, x) - x, to = Math.min(objX + objWidth, x + width) - 1 - x;
+        int column = surface.lastOverlapping(from, to, objY - y, objY + objHeight - LANDING_TOLERANCE - y);
+        if (column < 0) column = surface.lastOverlapping(from, to, objY - y, objY + objHeight - y);
+        return column < 0 ? objX : x + column + 1;
+    }
+
+    @Override
+    public int getCeilingY(int objX, int objY, int objWidth, int objHeight) {
+        return y + surface.maxBottom(Math.max(objX, x) - x, Math.min(objX + objWidth, x + width) - 1 - x);
+    }
+}
@@ -0,0 +1,90 @@
+import java.awt.*;
+import java.util.Arrays;
+
+// Polyline terrain piece: the line is the walkable surface, everything below it down to the base is solid
+class Terrain extends SurfaceCollidable {
+    private Color color;
+    private final Polygon outline;
+
+    public Terrain(int[] xs, int[] ys, int baseY, Color color) {
+        this(xs, ys, baseY, color, 0);
+    }
+
+    public Terrain(int[] xs, int[] ys, int baseY, Color color, int layer) {
+        this(xs, ys, baseY, color, layer, minOf(ys));
+    }
+
+    private Terrain(int[] xs, int[] ys, int baseY, Color color, int layer, int topY) {
+        super(xs[0], topY, xs[xs.length - 1] - xs[0], baseY - topY, layer,
+                Heightfield.fromPolyline(toLocal(xs, xs[0]), toLocal(ys, topY), baseY - topY));
+        this.color = color;
+
+        outline = new Polygon();
+        for (int i = 0; i < xs.length; i++) {
+            outline.addPoint(xs[i], ys[i]);
+        }
+        outline.addPoint(xs[xs.length - 1], baseY);
+        outline.addPoint(xs[0], baseY);
+    }
+
+    // Straight ramp filling the given box, rising towards the right or the left
+    public static Terrain slope(int x, int y, int width, int height, boolean risingRight, Color color, int layer) {
+        int[] xs = {x, x + width};
+        int[] ys = risingRight ? new int[]{y + height, y} : new int[]{y, y + height};
+        return new Terrain(xs, ys, y + height, color, layer);
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    // The surface points, left to right, and the base the terrain was built from
+    public int[] getPointXs() {
+        return Arrays.copyOf(outline.xpoints, outline.npoints - 2);
+    }
+
+    public int[] getPointYs() {
+        return Arrays.copyOf(outline.ypoints, outline.npoints - 2);
+    }
+
+    public int getBaseY() {
+        return outline.ypoints[outline.npoints - 1];
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) {
+        if (this.layer != playerLayer) {
+            Color opaqueColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+            g.setColor(opaqueColor);
+        } else {
+            g.setColor(color);
+        }
+        g.fillPolygon(outline);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        target.fillHeightfield(x, y, surface, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        commands.shape(this, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    private static int minOf(int[] values) {
+        int min = Integer.MAX_VALUE;
+        for (int value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int[] toLocal(int[] values, int origin) {
+        int[] local = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            local[i] = values[i] - origin;
+        }
+        return local;
+    }
+}
@@ -0,0 +1,302 @@
+import java.awt.*;
+
+// Grid-aligned level region stored as one packed bitset per tile kind instead of one Platform per block
+class TileMap extends Collidable {
+    public static final int SOLID = 0;
+    public static final int ONE_WAY = 1; // Can be stood on, but jumped and walked through
+    public static final int HAZARD = 2;  // Kills the player on touch
+    private static final int KINDS = 3;
+
+    private final int tileSize;
+    private final int columns, rows;
+    private final int wordsPerRow;
+    private final long[][] bits; // [kind][row * wordsPerRow + column / 64]
+    private Color color;
+
+    public TileMap(int x, int y, int columns, int rows, int tileSize, Color color) {
+        this(x, y, columns, rows, tileSize, color, 0);
+    }
+
+    public TileMap(int x, int y, int columns, int rows, int tileSize, Color color, int layer) {
+        super(x, y, columns * tileSize, rows * tileSize, layer);
+        this.tileSize = tileSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.wordsPerRow = (columns + 63) >>> 6;
+        this.bits = new long[KINDS][wordsPerRow * rows];
+        this.color = color;
+    }
+
+    public void setTile(int kind, int column, int row, boolean set) {
+        int index = row * wordsPerRow + (column >>> 6);
+        if (set) {
+            bits[kind][index] |= 1L << column;
+        } else {
+            bits[kind][index] &= ~(1L << column);
+        }
+    }
+
+    public boolean isTile(int kind, int column, int row) {
+        return (bits[kind][row * wordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    // Fills a rectangle of tiles, in tile coordinates
+    public void fill(int kind, int column, int row, int width, int height) {
+        for (int r = row; r < row + height; r++) {
+            for (int c = column; c < column + width; c++) {
+                setTile(kind, c, r, true);
+            }
+        }
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public boolean isCollidingWithTop(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        if (objX + objWidth <= x || objX >= x + width) return false;
+
+        int row = landingRow(objY + objHeight);
+        if (row < 0) return false;
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+
+        return anyInRow(SOLID, row, firstColumn, lastColumn) || anyInRow(ONE_WAY, row, firstColumn, lastColumn);
+    }
+
+    @Override
+    public boolean isCollidingWithSide(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        return anyInBox(SOLID, objX, objY, objWidth, objHeight);
+    }
+
+    public boolean touchesHazard(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        return anyInBox(HAZARD, objX, objY, objWidth, objHeight);
+    }
+
+    // The top of the tile row the object's feet are resting in
+    @Override
+    public int getSurfaceY(int objX, int objY, int objWidth, int objHeight) {
+        int row = landingRow(objY + objHeight);
+        return row < 0 ? y : y + row * tileSize;
+    }
+
+    // The bottom of the lowest solid tile overlapping the object
+    @Override
+    public int getCeilingY(int objX, int objY, int objWidth, int objHeight) {
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+        for (int row = rowOf(objY + objHeight - 1); row >= rowOf(objY); row--) {
+            if (anyInRow(SOLID, row, firstColumn, lastColumn)) {
+                return y + (row + 1) * tileSize;
+            }
+        }
+        return y + height;
+    }
+
+    // Only the solid tiles in the object's rows stop it, less the row its feet are resting in, so the floor
+    // under the object never counts as a wall while the tiles standing on it do
+    @Override
+    public boolean blocksSideways(int objX, int objY, int objWidth, int objHeight, int playerLayer) {
+        if (this.layer != playerLayer) return false;
+        if (objX + objWidth <= x || objX >= x + width || objY + objHeight <= y || objY >= y + height) return false;
+
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+        for (int row = rowOf(objY), lastRow = lastSideRow(objY, objHeight); row <= lastRow; row++) {
+            if (anyInRow(SOLID, row, firstColumn, lastColumn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The faces are those of the tiles blocksSideways found, nearest the object's side
+    @Override
+    public int getLeftFaceX(int objX, int objY, int objWidth, int objHeight) {
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+        int leftmost = Integer.MAX_VALUE;
+        for (int row = rowOf(objY), lastRow = lastSideRow(objY, objHeight); row <= lastRow; row++) {
+            leftmost = Math.min(leftmost, firstInRow(SOLID, row, firstColumn, lastColumn));
+        }
+        return leftmost == Integer.MAX_VALUE ? x : x + leftmost * tileSize;
+    }
+
+    @Override
+    public int getRightFaceX(int objX, int objY, int objWidth, int objHeight) {
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+        int rightmost = -1;
+        for (int row = rowOf(objY), lastRow = lastSideRow(objY, objHeight); row <= lastRow; row++) {
+            rightmost = Math.max(rightmost, lastInRow(SOLID, row, firstColumn, lastColumn));
+        }
+        return rightmost < 0 ? x + width : x + (rightmost + 1) * tileSize;
+    }
+
+    // Lowest row the object's body is in, leaving out the row its feet have sunk into when landing
+    private int lastSideRow(int objY, int objHeight) {
+        int lastRow = rowOf(objY + objHeight - 1);
+        return landingRow(objY + objHeight) == lastRow ? lastRow - 1 : lastRow;
+    }
+
+    // Row whose top edge is within the landing tolerance above the given bottom edge, or -1
+    private int landingRow(int objBottomY) {
+        int offset = objBottomY - y;
+        if (offset < 0) return -1;
+        int row = offset / tileSize;
+        if (offset - row * tileSize > 10 || row >= rows) return -1;
+        return row;
+    }
+
+    private boolean anyInBox(int kind, int objX, int objY, int objWidth, int objHeight) {
+        if (objX + objWidth <= x || objX >= x + width || objY + objHeight <= y || objY >= y + height) return false;
+
+        int firstColumn = columnOf(objX);
+        int lastColumn = columnOf(objX + objWidth - 1);
+        int lastRow = rowOf(objY + objHeight - 1);
+        for (int row = rowOf(objY); row <= lastRow; row++) {
+            if (anyInRow(kind, row, firstColumn, lastColumn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean anyInRow(int kind, int row, int firstColumn, int lastColumn) {
+        long[] layerBits = bits[kind];
+        int base = row * wordsPerRow;
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            if ((layerBits[base + word] & wordMask(word, firstWord, lastWord, firstColumn, lastColumn)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int firstInRow(int kind, int row, int firstColumn, int lastColumn) {
+        long[] layerBits = bits[kind];
+        int base = row * wordsPerRow;
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long hits = layerBits[base + word] & wordMask(word, firstWord, lastWord, firstColumn, lastColumn);
+            if (hits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(hits);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private int lastInRow(int kind, int row, int firstColumn, int lastColumn) {
+        long[] layerBits = bits[kind];
+        int base = row * wordsPerRow;
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for (int word = lastWord; word >= firstWord; word--) {
+            long hits = layerBits[base + word] & wordMask(word, firstWord, lastWord, firstColumn, lastColumn);
+            if (hits != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(hits);
+            }
+        }
+        return -1;
+    }
+
+    private static long wordMask(int word, int firstWord, int lastWord, int firstColumn, int lastColumn) {
+        long mask = -1L;
+        if (word == firstWord) mask &= -1L << (firstColumn & 63);
+        if (word == lastWord) mask &= -1L >>> (63 - (lastColumn & 63));
+        return mask;
+    }
+
+    private int columnOf(int worldX) {
+        return Math.max(0, Math.min(columns - 1, Math.floorDiv(worldX - x, tileSize)));
+    }
+
+    private int rowOf(int worldY) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(worldY - y, tileSize)));
+    }
+
+    @Override
+    public void draw(Graphics g, int playerLayer) {
+        int alpha = this.layer != playerLayer ? 50 : 255;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(x, y, width, height);
+        if (!clip.intersects(x, y, width, height)) return;
+
+        int firstColumn = columnOf(clip.x);
+        int lastColumn = columnOf(clip.x + clip.width - 1);
+        int firstRow = rowOf(clip.y);
+        int lastRow = rowOf(clip.y + clip.height - 1);
+
+        g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
+        drawRuns(g, null, 0, SOLID, firstRow, lastRow, firstColumn, lastColumn, tileSize);
+        g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha / 2));
+        drawRuns(g, null, 0, ONE_WAY, firstRow, lastRow, firstColumn, lastColumn, Math.max(2, tileSize / 4));
+        g.setColor(new Color(200, 0, 0, alpha));
+        drawRuns(g, null, 0, HAZARD, firstRow, lastRow, firstColumn, lastColumn, tileSize);
+    }
+
+    @Override
+    public void rasterize(FrameBuffer target, int playerLayer) {
+        if (target.getClipBottom() <= y || target.getClipTop() >= y + height) return;
+        if (x >= target.getClipRight() || x + width <= target.getClipLeft()) return;
+
+        int firstColumn = columnOf(target.getClipLeft());
+        int lastColumn = columnOf(target.getClipRight() - 1);
+        int firstRow = rowOf(target.getClipTop());
+        int lastRow = rowOf(target.getClipBottom() - 1);
+
+        int solid = FrameBuffer.layerColor(color, layer, playerLayer);
+        drawRuns(null, target, solid, SOLID, firstRow, lastRow, firstColumn, lastColumn, tileSize);
+        int oneWay = (solid & 0x00FFFFFF) | ((solid >>> 25) << 24);
+        drawRuns(null, target, oneWay, ONE_WAY, firstRow, lastRow, firstColumn, lastColumn, Math.max(2, tileSize / 4));
+        int hazard = (solid & 0xFF000000) | 0xC80000;
+        drawRuns(null, target, hazard, HAZARD, firstRow, lastRow, firstColumn, lastColumn, tileSize);
+    }
+
+    @Override
+    public void emit(RenderCommandList commands, int playerLayer) {
+        commands.shape(this, FrameBuffer.layerColor(color, layer, playerLayer));
+    }
+
+    // Draws each horizontal run of set tiles as one rectangle, through Java2D or into a frame buffer
+    private void drawRuns(Graphics g, FrameBuffer target, int argb, int kind,
+                          int firstRow, int lastRow, int firstColumn, int lastColumn, int runHeight) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            int column = firstColumn;
+            while (column <= lastColumn) {
+                int start = firstInRow(kind, row, column, lastColumn);
+                if (start == Integer.MAX_VALUE) break;
+                int end = start;
+                while (end + 1 <= lastColumn && isTile(kind, end + 1, row)) {
+                    end++;
+                }
+                int runX = x + start * tileSize, runY = y + row * tileSize, runWidth = (end - start + 1) * tileSize;
+                if (target != null) {
+                    target.fillRect(runX, runY, runWidth, runHeight, argb);
+                } else {
+                    g.fillRect(runX, runY, runWidth, runHeight);
+                }
+                column = end + 1;
+            }
+        }
+    }
+}
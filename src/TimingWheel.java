@@ -0,0 +1,115 @@
+// Scheduler for game events counted in simulation ticks. This is a hierarchical timing wheel: four wheels
+// of 64 slots, each slot covering 64 times as many ticks as one slot of the wheel below. A timer waits in
+// the coarsest wheel that can hold it and moves down a wheel each time that wheel's slot comes round.
+// Scheduling and cancelling are O(1), and a tick only touches the timers that fire or move down, however
+// many are pending.
+final class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int WHEELS = 4;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * WHEELS)) - 1; // About three days at 60 ticks/s
+
+    // A pending event; keep it to cancel the event later
+    static final class Timer {
+        private Runnable task;
+        private long deadline;
+        private int slot = -1; // Index into slots, -1 when not scheduled
+        private Timer previous, next;
+
+        public boolean isScheduled() {
+            return slot >= 0;
+        }
+    }
+
+    private final Timer[] slots = new Timer[WHEELS * SLOTS]; // Head of each slot's doubly linked list
+    private long now = 0;
+    private int size = 0;
+
+    public long now() {
+        return now;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Runs the task during the advance() that is delay ticks from now; a delay below 1 means the next one
+    public Timer schedule(long delay, Runnable task) {
+        Timer timer = new Timer();
+        timer.task = task;
+        timer.deadline = now + Math.max(1, delay);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    // Does nothing for a timer that already ran or was cancelled
+    public void cancel(Timer timer) {
+        if (timer == null || !timer.isScheduled()) return;
+        unlink(timer);
+        size--;
+    }
+
+    // Drops every pending timer, as when a level restarts
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            for (Timer timer = slots[i]; timer != null; timer = timer.next) {
+                timer.slot = -1;
+            }
+            slots[i] = null;
+        }
+        size = 0;
+    }
+
+    // Moves time on by one tick and runs everything due; tasks may schedule and cancel freely
+    public void advance() {
+        now++;
+        // Bring the next stretch of each coarser wheel down as the wheel below wraps round
+        for (int wheel = 1; wheel < WHEELS; wheel++) {
+            if ((now & ((1L << (SLOT_BITS * wheel)) - 1)) != 0) break;
+            int slot = wheel * SLOTS + (int) ((now >>> (SLOT_BITS * wheel)) & (SLOTS - 1));
+            Timer timer = slots[slot];
+            slots[slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                insert(timer);
+                timer = next;
+            }
+        }
+
+        // Nothing new can land in this slot while it runs: a delay of at least one tick lands elsewhere
+        int slot = (int) (now & (SLOTS - 1));
+        Timer timer;
+        while ((timer = slots[slot]) != null) {
+            unlink(timer);
+            size--;
+            timer.task.run();
+        }
+    }
+
+    private void insert(Timer timer) {
+        long delay = Math.min(timer.deadline - now, MAX_DELAY);
+        int wheel = 0;
+        while (wheel < WHEELS - 1 && delay >= 1L << (SLOT_BITS * (wheel + 1))) {
+            wheel++;
+        }
+        long due = now + delay;
+        int slot = wheel * SLOTS + (int) ((due >>> (SLOT_BITS * wheel)) & (SLOTS - 1));
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = slots[slot];
+        if (slots[slot] != null) slots[slot].previous = timer;
+        slots[slot] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            slots[timer.slot] = timer.next;
+        }
+        if (timer.next != null) timer.next.previous = timer.previous;
+        timer.slot = -1;
+        timer.previous = timer.next = null;
+    }
+}
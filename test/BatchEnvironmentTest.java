@@ -0,0 +1,72 @@
+import java.awt.event.KeyEvent;
+
+// Plays the same inputs through the game loop, in Echo Jump mode, and through BatchEnvironment and checks the
+// player ends every tick in the same place. Run: javac -d out src/*.java test/*.java && java -cp out BatchEnvironmentTest
+final class BatchEnvironmentTest {
+    private static final int RIGHT = BatchEnvironment.RIGHT, LEFT = BatchEnvironment.LEFT, JUMP = BatchEnvironment.JUMP;
+    private static final int ECHO = BatchEnvironment.ECHO, SWITCH_LAYER = BatchEnvironment.SWITCH_LAYER;
+
+    public static void main(String[] args) {
+        // The button at the end of the disappearing floor switches the floor off under the way back
+        boolean[] turned = {false};
+        play(1, (tick, x) -> (turned[0] |= x >= 1030) ? LEFT : RIGHT, BatchEnvironment.DEATH_REWARD, 300);
+        // Leaves an echo, steps off so it turns solid, walks back into it, climbs on and walks off again
+        boolean[] back = {false};
+        play(1, (tick, x) -> tick == 0 ? ECHO : tick <= 10 ? RIGHT : tick <= 30 ? LEFT : tick == 31 ? JUMP
+                : tick <= 45 ? LEFT : (back[0] |= x >= 1030) ? LEFT : RIGHT, BatchEnvironment.DEATH_REWARD, 400);
+        // Tile map: jumps the spikes, climbs the wall and jumps up through the one-way ledge to the goal
+        play(5, (tick, x) -> x >= 330 && x < 345 || x >= 580 && x < 600 || x >= 830 && x < 850 ? RIGHT | JUMP : RIGHT,
+                BatchEnvironment.GOAL_REWARD, 300);
+        // Walks onto the spikes
+        play(5, (tick, x) -> RIGHT, BatchEnvironment.DEATH_REWARD, 100);
+        // Level 2 lets the player switch layers, and the start platform is not on the other one
+        play(2, (tick, x) -> tick == 0 ? SWITCH_LAYER : 0, BatchEnvironment.DEATH_REWARD, 100);
+        System.out.println("BatchEnvironmentTest passed");
+    }
+
+    interface Policy {
+        int action(int tick, int playerX);
+    }
+
+    private static void play(int level, Policy policy, float outcome, int maxTicks) {
+        EchoMovementGame game = EchoMovementGame.offscreen(level, true);
+        BatchEnvironment batch = new BatchEnvironment((completeLevel, groups) -> Levels.build(level, completeLevel, groups), 1, 1);
+        float[] observations = new float[BatchEnvironment.OBSERVATION_SIZE];
+        float[] rewards = new float[1];
+        boolean[] dones = new boolean[1];
+        int previous = 0;
+        for (int tick = 0; tick < maxTicks; tick++) {
+            int action = policy.action(tick, game.getPlayerX());
+            pressChanged(game, previous, action, RIGHT, KeyEvent.VK_D);
+            pressChanged(game, previous, action, LEFT, KeyEvent.VK_A);
+            tap(game, action, JUMP, KeyEvent.VK_SPACE);
+            tap(game, action, ECHO, KeyEvent.VK_E);
+            tap(game, action, SWITCH_LAYER, KeyEvent.VK_UP);
+            previous = action;
+
+            game.step();
+            batch.step(new int[]{action}, observations, rewards, dones);
+            int x = Math.round(observations[BatchEnvironment.OBS_X] * 1500);
+            int y = Math.round(observations[BatchEnvironment.OBS_Y] * 600);
+            String where = "level " + level + ", tick " + tick + ": game at " + game.getPlayerX() + "," + game.getPlayerY()
+                    + ", batch at " + x + "," + y;
+            if (x != game.getPlayerX() || y != game.getPlayerY()) throw new AssertionError(where);
+            if (dones[0]) {
+                if (rewards[0] != outcome) throw new AssertionError(where + ": ended with reward " + rewards[0]);
+                batch.shutdown();
+                return;
+            }
+        }
+        throw new AssertionError("level " + level + ": no reward of " + outcome + " in " + maxTicks + " ticks");
+    }
+
+    private static void pressChanged(EchoMovementGame game, int previous, int action, int bit, int keyCode) {
+        if ((previous & bit) != (action & bit)) game.key(keyCode, (action & bit) != 0);
+    }
+
+    private static void tap(EchoMovementGame game, int action, int bit, int keyCode) {
+        if ((action & bit) == 0) return;
+        game.key(keyCode, true);
+        game.key(keyCode, false);
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Creates, moves and destroys bodies at random and checks every tree query against a scan of the exact boxes,
+// checks rays and swept boxes hit the nearest body at the right distance, then checks the EntitySystems finds
+// give the same row from the tree as from the kernel scan.
+// Run: javac -d out src/*.java test/*.java && java -cp out DynamicAabbTreeTest
+final class DynamicAabbTreeTest {
+    private static final int WORLD = 4000;
+
+    public static void main(String[] args) {
+        raysHitInOrder();
+        for (long seed = 1; seed <= 20; seed++) {
+            queriesMatchAScan(seed);
+            castsMatchAScan(seed);
+            findsMatchTheKernel(seed);
+        }
+        System.out.println("DynamicAabbTreeTest passed");
+    }
+
+    private static void queriesMatchAScan(long seed) {
+        Random random = new Random(seed);
+        DynamicAabbTree tree = new DynamicAabbTree(4);
+        int capacity = 600;
+        int[] proxy = new int[capacity], x = new int[capacity], y = new int[capacity];
+        int[] width = new int[capacity], height = new int[capacity];
+        boolean[] live = new boolean[capacity];
+        int count = 0;
+        for (int step = 0; step < 4000; step++) {
+            int body = random.nextInt(capacity);
+            int action = random.nextInt(10);
+            if (!live[body]) {
+                x[body] = random.nextInt(WORLD);
+                y[body] = random.nextInt(WORLD);
+                width[body] = 1 + random.nextInt(80);
+                height[body] = 1 + random.nextInt(80);
+                proxy[body] = tree.create(x[body], y[body], width[body], height[body], body);
+                live[body] = true;
+                count++;
+            } else if (action == 0) {
+                tree.destroy(proxy[body]);
+                live[body] = false;
+                count--;
+            } else {
+                // Mostly small steps inside or just out of the fat box, now and then a jump across the world
+                boolean jump = action == 1;
+                x[body] = jump ? random.nextInt(WORLD) : x[body] + random.nextInt(21) - 10;
+                y[body] = jump ? random.nextInt(WORLD) : y[body] + random.nextInt(21) - 10;
+                tree.move(proxy[body], x[body], y[body], width[body], height[body]);
+            }
+            check(tree.size() == count, "seed " + seed + ", step " + step + ": size " + tree.size() + ", expected " + count);
+
+            int queryX = random.nextInt(WORLD) - 100, queryY = random.nextInt(WORLD) - 100;
+            int queryWidth = 1 + random.nextInt(400), queryHeight = 1 + random.nextInt(400);
+            int found = tree.query(queryX, queryY, queryWidth, queryHeight);
+            int[] actual = new int[found];
+            for (int i = 0; i < found; i++) actual[i] = tree.payload(tree.found(i));
+            Arrays.sort(actual);
+            int[] expected = new int[capacity];
+            int expectedCount = 0;
+            for (int i = 0; i < capacity; i++) {
+                if (live[i] && x[i] < queryX + queryWidth && x[i] + width[i] > queryX
+                        && y[i] < queryY + queryHeight && y[i] + height[i] > queryY) {
+                    expected[expectedCount++] = i;
+                }
+            }
+            check(Arrays.equals(actual, Arrays.copyOf(expected, expectedCount)), "seed " + seed + ", step " + step
+                    + ": query found " + Arrays.toString(actual) + ", a scan " + Arrays.toString(Arrays.copyOf(expected, expectedCount)));
+        }
+    }
+
+    // Three boxes in a row: a ray or box along the row hits them nearest first, at the distance of the face it
+    // meets, and the filter passes over the ones it rejects
+    private static void raysHitInOrder() {
+        DynamicAabbTree tree = new DynamicAabbTree(4);
+        int a = tree.create(100, 0, 20, 20, 0), b = tree.create(200, 0, 20, 20, 1), c = tree.create(300, 0, 20, 20, 2);
+
+        checkHit(tree, tree.raycast(0, 10, 400, 10, null), a, 0.25f, "ray to the right");
+        checkHit(tree, tree.raycast(0, 10, 400, 10, proxy -> proxy != a), b, 0.5f, "ray past the first box");
+        checkHit(tree, tree.raycast(0, 10, 400, 10, proxy -> proxy == c), c, 0.75f, "ray past two boxes");
+        checkHit(tree, tree.raycast(400, 10, 0, 10, null), c, 0.2f, "ray to the left");
+        checkHit(tree, tree.raycast(0, 10, 50, 10, null), -1, 1f, "ray stopping short");
+        checkHit(tree, tree.raycast(0, 50, 400, 50, null), -1, 1f, "ray passing below");
+        checkHit(tree, tree.raycast(110, -100, 110, 100, null), a, 0.5f, "ray falling onto the first box");
+
+        // A 10 x 10 box meets the first box once its right side reaches x 100
+        checkHit(tree, tree.sweep(0, 5, 10, 10, 400, 0, null), a, 0.225f, "box moving right");
+        checkHit(tree, tree.sweep(0, 5, 10, 10, 400, 0, proxy -> proxy != a), b, 0.475f, "box past the first one");
+        checkHit(tree, tree.sweep(105, 5, 10, 10, 400, 0, null), a, 0f, "box starting inside the first one");
+        checkHit(tree, tree.sweep(0, 25, 10, 10, 400, 0, null), -1, 1f, "box passing below");
+
+        tree.move(a, 100, 40, 20, 20);
+        checkHit(tree, tree.raycast(0, 10, 400, 10, null), b, 0.5f, "ray after the first box moved away");
+        tree.destroy(b);
+        checkHit(tree, tree.raycast(0, 10, 400, 10, null), c, 0.75f, "ray after the second box went");
+    }
+
+    private static void checkHit(DynamicAabbTree tree, int hit, int expected, float fraction, String what) {
+        check(hit == expected, what + ": hit " + hit + ", expected " + expected);
+        check(Math.abs(tree.hitFraction() - fraction) < 1e-6f, what + ": hit at " + tree.hitFraction() + ", expected " + fraction);
+    }
+
+    // Random rays and swept boxes among random bodies: the hit is the body a scan finds nearest, at the same
+    // distance
+    private static void castsMatchAScan(long seed) {
+        Random random = new Random(seed);
+        DynamicAabbTree tree = new DynamicAabbTree(4);
+        int count = 300;
+        int[] proxy = new int[count], x = new int[count], y = new int[count], width = new int[count], height = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextInt(WORLD);
+            y[i] = random.nextInt(WORLD);
+            width[i] = 1 + random.nextInt(80);
+            height[i] = 1 + random.nextInt(80);
+            proxy[i] = tree.create(x[i], y[i], width[i], height[i], i);
+        }
+        for (int cast = 0; cast < 2000; cast++) {
+            int fromX = random.nextInt(WORLD), fromY = random.nextInt(WORLD);
+            int dx = random.nextInt(1601) - 800, dy = cast % 4 == 0 ? 0 : random.nextInt(1601) - 800;
+            int boxWidth = cast % 2 == 0 ? 0 : 1 + random.nextInt(60), boxHeight = cast % 2 == 0 ? 0 : 1 + random.nextInt(60);
+            int hit = tree.sweep(fromX, fromY, boxWidth, boxHeight, dx, dy, null);
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                nearest = Math.min(nearest, entry(fromX, fromY, boxWidth, boxHeight, dx, dy,
+                        x[i], y[i], width[i], height[i]));
+            }
+            String where = "seed " + seed + ", cast " + cast + " from " + fromX + "," + fromY + " by " + dx + "," + dy;
+            if (nearest > 1) {
+                check(hit < 0, where + ": hit proxy " + hit + " where a scan hits nothing");
+                continue;
+            }
+            check(hit >= 0, where + ": missed what a scan hits at " + nearest);
+            int body = tree.payload(hit);
+            double distance = entry(fromX, fromY, boxWidth, boxHeight, dx, dy, x[body], y[body], width[body], height[body]);
+            check(Math.abs(distance - nearest) < 1e-5 && Math.abs(tree.hitFraction() - nearest) < 1e-5,
+                    where + ": hit " + body + " at " + tree.hitFraction() + ", a scan hits at " + nearest);
+        }
+    }
+
+    // When along the move the box first touches the body, from 0 to 1, or infinity if it never does: the latest
+    // of the times it comes into line with the body on each axis, if that is before it leaves line on either
+    private static double entry(int x, int y, int width, int height, int dx, int dy,
+                                int bodyX, int bodyY, int bodyWidth, int bodyHeight) {
+        double[] xSpan = span(x, width, dx, bodyX, bodyWidth), ySpan = span(y, height, dy, bodyY, bodyHeight);
+        double enter = Math.max(0, Math.max(xSpan[0], ySpan[0])), leave = Math.min(1, Math.min(xSpan[1], ySpan[1]));
+        return enter <= leave ? enter : Double.POSITIVE_INFINITY;
+    }
+
+    // The times the moving interval [start, start + size] overlaps [bodyStart, bodyStart + bodySize]
+    private static double[] span(int start, int size, int delta, int bodyStart, int bodySize) {
+        if (delta == 0) {
+            boolean overlaps = start + size >= bodyStart && start <= bodyStart + bodySize;
+            return overlaps ? new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}
+                    : new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        }
+        double meet = (double) (bodyStart - size - start) / delta, part = (double) (bodyStart + bodySize - start) / delta;
+        return new double[]{Math.min(meet, part), Math.max(meet, part)};
+    }
+
+    // Tables past one kernel block, so the finds take the tree; the kernel scan is the reference. Some rows are
+    // not solid, and neither may find them.
+    private static void findsMatchTheKernel(long seed) {
+        Random random = new Random(seed);
+        int count = AabbKernel.BLOCK + 21 + random.nextInt(300);
+        EntityTable table = new EntityTable(EntityTable.BOUNDS | EntityTable.LAYER | EntityTable.BODY
+                | EntityTable.SOLID, count);
+        DynamicAabbTree tree = new DynamicAabbTree(count);
+        int[] entities = new int[count];
+        for (int i = 0; i < count; i++) {
+            int entity = entities[i] = table.add();
+            int row = table.rowOf(entity);
+            table.x[row] = random.nextInt(1500);
+            table.y[row] = random.nextInt(600);
+            table.width[row] = table.height[row] = 50;
+            table.layer[row] = random.nextInt(2);
+            if (random.nextInt(8) == 0) table.solid[row] = 0;
+            table.body[row] = tree.create(table.x[row], table.y[row], 50, 50, entity);
+        }
+        // Removing rows moves the last row into the gap, so the tree's payloads have to go through rowOf
+        for (int left = count; left > count - 20; left--) {
+            int i = random.nextInt(left), entity = entities[i];
+            entities[i] = entities[left - 1];
+            tree.destroy(table.body[table.rowOf(entity)]);
+            table.remove(entity);
+        }
+        for (int tick = 0; tick < 50; tick++) {
+            for (int row = 0; row < table.size(); row++) {
+                table.x[row] += random.nextInt(9) - 4;
+                table.y[row] += random.nextInt(9) - 4;
+            }
+            EntitySystems.moveBodies(table, tree);
+            for (int q = 0; q < 40; q++) {
+                int x = random.nextInt(1500), y = random.nextInt(600), layer = random.nextInt(2);
+                String where = "seed " + seed + ", tick " + tick + ", box at " + x + "," + y;
+                check(EntitySystems.findLanding(table, tree, x, y, 50, 50, layer) == AabbKernel.firstLanding(table.x,
+                        table.y, table.width, table.layer, table.solid, table.size(), x, y, 50, 50, layer), where + ": landing");
+                check(EntitySystems.findSideHit(table, tree, x, y, 50, 50, layer) == AabbKernel.firstSideHit(table.x,
+                        table.y, table.width, table.height, table.layer, table.solid, table.size(), x, y, 50, 50, layer), where + ": side hit");
+                check(EntitySystems.findOverlap(table, tree, x, y, 50, 50, layer) == AabbKernel.firstOverlap(table.x,
+                        table.y, table.width, table.height, table.layer, table.solid, table.size(), x, y, 50, 50, layer), where + ": overlap");
+                int overlap = EntitySystems.findOverlap(table, tree, x, y, 50, 50, layer);
+                check(overlap < 0 || table.solid[overlap] != 0, where + ": found row " + overlap + ", which is not solid");
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
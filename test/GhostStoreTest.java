@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Records runs of a few lengths and checks the store keeps only the fastest of each level, plays them back
+// frame for frame, leaves nothing of an abandoned run, and reads the same runs back in a later session.
+// Run: javac -d out src/*.java test/*.java && java -cp out GhostStoreTest
+final class GhostStoreTest {
+    private static final int KEEP = 3;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("ghosts");
+        try {
+            GhostStore store = new GhostStore(directory, KEEP, Runnable::run); // Pruned as soon as it is due
+            for (int ticks : new int[]{900, 300, 700, 300, 1000, 500}) record(store, 1, ticks).finish();
+            record(store, 1, 200).abandon();
+            record(store, 2, 50).finish();
+
+            // Pruning happens as the next run starts
+            store.record(1).abandon();
+            check(files(directory.resolve("level-1")) == KEEP, "level 1 holds " + files(directory.resolve("level-1")) + " files");
+            List<GhostStore.Run> runs = store.fastestRuns(1, 10);
+            check(runs.size() == KEEP, runs.size() + " runs kept");
+            int[] expected = {300, 300, 500};
+            for (int i = 0; i < KEEP; i++) {
+                check(runs.get(i).ticks == expected[i], "run " + i + " has " + runs.get(i).ticks + " ticks");
+                playsBack(store, runs.get(i));
+            }
+            check(runs.get(0).sequence < runs.get(1).sequence, "the earlier of two equal runs comes first");
+            check(store.fastestRuns(2, 10).size() == 1, "level 2 lost its run");
+
+            List<GhostStore.Run> reread = new GhostStore(directory, KEEP).fastestRuns(1, 10);
+            check(reread.size() == KEEP, reread.size() + " runs read back");
+            for (int i = 0; i < KEEP; i++) {
+                check(reread.get(i).sequence == runs.get(i).sequence && reread.get(i).ticks == runs.get(i).ticks,
+                        "run " + i + " read back as " + reread.get(i).sequence + ", " + reread.get(i).ticks + " ticks");
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+            }
+        }
+        System.out.println("GhostStoreTest passed");
+    }
+
+    // Frame t of a run of n ticks is (n, t, t % 2), so playback can tell the runs and frames apart
+    private static GhostStore.Recorder record(GhostStore store, int level, int ticks) throws IOException {
+        GhostStore.Recorder recorder = store.record(level);
+        for (int tick = 0; tick < ticks; tick++) recorder.append(ticks, tick, tick % 2);
+        return recorder;
+    }
+
+    private static void playsBack(GhostStore store, GhostStore.Run run) throws IOException {
+        try (GhostStore.Playback playback = store.play(run)) {
+            for (int tick = 0; tick < run.ticks; tick++) {
+                check(playback.advance(), "run of " + run.ticks + " ended at tick " + tick);
+                check(playback.x() == run.ticks && playback.y() == tick && playback.layer() == tick % 2,
+                        "run of " + run.ticks + ", tick " + tick + ": frame " + playback.x() + "," + playback.y());
+            }
+            check(!playback.advance(), "run of " + run.ticks + " runs on");
+        }
+    }
+
+    private static long files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
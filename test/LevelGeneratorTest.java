@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Checks that LevelGenerator only asks for the jumps the game's physics can make, from the game's own jump
+// constants. Run: javac -d out src/*.java test/*.java && java -cp out LevelGeneratorTest
+final class LevelGeneratorTest {
+    public static void main(String[] args) {
+        limitsFitTheJump();
+        routesKeepToTheLimits();
+        disappearingScenerySwitchesOff();
+        System.out.println("LevelGeneratorTest passed");
+    }
+
+    private static void limitsFitTheJump() {
+        int peak = peak();
+        check(peak > LevelGenerator.MAX_RISE, "a step of the highest rise is out of jumping reach");
+        check(peak < LevelGenerator.ECHO_RISE, "an echo step can be jumped without an echo");
+        check(peak > LevelGenerator.ECHO_RISE - EchoMovementGame.ECHO_HEIGHT, "an echo step is out of reach from the echo");
+        check(peak < LevelGenerator.WALL_HEIGHT, "a wall can be jumped without its button");
+
+        // Counts the whole gap as run distance, though the player can take off and land part way off an edge
+        check(reach(LevelGenerator.MAX_RISE) >= LevelGenerator.MAX_GAP, "the widest gap is too wide at the highest rise");
+        check(reach(LevelGenerator.ECHO_RISE - EchoMovementGame.ECHO_HEIGHT) >= LevelGenerator.MAX_GAP,
+                "the widest gap is too wide from an echo");
+    }
+
+    // Every step of the route on layer 0, left to right, is at most a jump from the one before; an echo step
+    // is exactly the echo rise above it
+    private static void routesKeepToTheLimits() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<int[]> steps = steps(LevelGenerator.generate(seed, 30, 1, 0.5));
+            for (int i = 1; i < steps.size(); i++) {
+                int[] from = steps.get(i - 1), to = steps.get(i);
+                int gap = to[0] - from[1], rise = from[2] - to[2];
+                check(gap <= LevelGenerator.MAX_GAP, "seed " + seed + ": gap of " + gap + " at x " + to[0]);
+                check(rise <= LevelGenerator.MAX_RISE || rise == LevelGenerator.ECHO_RISE,
+                        "seed " + seed + ": rise of " + rise + " at x " + to[0]);
+            }
+        }
+    }
+
+    // The disappearing group is scenery a button on the route clears, not a group nothing switches
+    private static void disappearingScenerySwitchesOff() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<String> lines = LevelGenerator.generate(seed, 30, 1, 0);
+            boolean disappearing = false, clear = false;
+            for (String line : lines) {
+                String[] tokens = line.split(" ");
+                disappearing |= tokens[0].equals("disappearing");
+                clear |= tokens[0].equals("button") && tokens[6].equals("clear");
+            }
+            check(disappearing, "seed " + seed + ": no disappearing scenery");
+            check(clear, "seed " + seed + ": nothing clears the disappearing scenery");
+        }
+    }
+
+    // Left edge, right edge and top of each ungrouped platform and mountain on layer 0, in file order
+    private static List<int[]> steps(List<String> lines) {
+        List<int[]> steps = new ArrayList<>();
+        for (String line : lines) {
+            String[] tokens = line.split(" ");
+            boolean step = tokens[0].equals("platform") || tokens[0].equals("mountain");
+            if (!step || tokens.length != 6) continue; // Scenery has a layer, walls a group
+            int x = Integer.parseInt(tokens[1]), y = Integer.parseInt(tokens[2]), width = Integer.parseInt(tokens[3]);
+            steps.add(new int[]{x, x + width, y});
+        }
+        return steps;
+    }
+
+    // Highest the feet get above the take-off point
+    private static int peak() {
+        int peak = 0;
+        for (int height : jump()) peak = Math.max(peak, height);
+        return peak;
+    }
+
+    // How far the player runs before the feet come back down through the given height
+    private static int reach(int rise) {
+        int[] heights = jump();
+        int tick = heights.length - 1;
+        while (tick > 0 && heights[tick] < rise) tick--;
+        return tick * EchoMovementGame.RUN_SPEED;
+    }
+
+    // Height of the feet after each tick of a running jump, stepped as the game steps the player: the jump
+    // force, then gravity before every later move, until the feet are back at the take-off height
+    private static int[] jump() {
+        List<Integer> heights = new ArrayList<>();
+        int height = 0, velocity = EchoMovementGame.JUMP_FORCE;
+        do {
+            height -= velocity;
+            heights.add(height);
+            velocity += EchoMovementGame.GRAVITY;
+        } while (height > 0);
+        int[] result = new int[heights.size()];
+        for (int i = 0; i < result.length; i++) result[i] = heights.get(i);
+        return result;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
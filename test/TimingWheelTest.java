@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Checks that every timer runs in the advance() of its deadline, across the boundaries between the wheels and
+// past the last one, by comparing the deadlines in firing order with the same deadlines sorted. Timers due
+// in the same tick may run in any order. Run: javac -d out src/*.java test/*.java && java -cp out TimingWheelTest
+final class TimingWheelTest {
+    private static final long SPAN = 1L << 24; // Ticks the four wheels of 64 slots cover
+
+    public static void main(String[] args) {
+        for (long start : new long[]{0, 1, 37, 4095, 262_143}) {
+            boundaries(start);
+        }
+        for (long seed = 1; seed <= 5; seed++) {
+            randomSchedules(seed);
+        }
+        System.out.println("TimingWheelTest passed");
+    }
+
+    // Delays either side of where each wheel hands over to the next, scheduled once time has reached start
+    private static void boundaries(long start) {
+        long[] delays = {1, 2, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 262_145,
+                SPAN - 1, SPAN, SPAN + 1, SPAN + 4096, 3 * SPAN + 5};
+        Run run = new Run();
+        while (run.wheel.now() < start) run.wheel.advance();
+        for (long delay : delays) run.schedule(delay);
+        run.finish("start " + start);
+    }
+
+    // Timers scheduled at random times, some cancelled and some scheduling another when they run
+    private static void randomSchedules(long seed) {
+        Random random = new Random(seed);
+        Run run = new Run();
+        for (int i = 0; i < 2000; i++) {
+            if (random.nextInt(4) == 0) {
+                for (int ticks = random.nextInt(100); ticks > 0; ticks--) run.wheel.advance();
+            }
+            int timer = run.schedule(delay(random));
+            if (random.nextInt(8) == 0) run.followUp[timer] = delay(random);
+        }
+        for (int i = 0; i < 200; i++) run.cancel(random.nextInt(run.count));
+        run.finish("seed " + seed);
+    }
+
+    private static long delay(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return 1 + random.nextInt(200);
+            case 1: // Two either side of a wheel boundary
+                return (1L << (6 * (1 + random.nextInt(4)))) - 2 + random.nextInt(5);
+            case 2:
+                return 1 + random.nextInt(1 << 20);
+            default: // Up to three times what the wheels cover
+                return 1 + (long) (random.nextDouble() * 3 * SPAN);
+        }
+    }
+
+    // Timers by id, with when each is due, when it ran and what it schedules when it runs
+    private static final class Run {
+        final TimingWheel wheel = new TimingWheel();
+        TimingWheel.Timer[] timers = new TimingWheel.Timer[16];
+        long[] deadline = new long[16], ranAt = new long[16], followUp = new long[16];
+        boolean[] cancelled = new boolean[16];
+        final List<Integer> order = new ArrayList<>();
+        int count = 0;
+
+        int schedule(long delay) {
+            int id = count++;
+            if (id == timers.length) {
+                timers = Arrays.copyOf(timers, id * 2);
+                deadline = Arrays.copyOf(deadline, id * 2);
+                ranAt = Arrays.copyOf(ranAt, id * 2);
+                followUp = Arrays.copyOf(followUp, id * 2);
+                cancelled = Arrays.copyOf(cancelled, id * 2);
+            }
+            deadline[id] = wheel.now() + delay;
+            ranAt[id] = -1;
+            timers[id] = wheel.schedule(delay, () -> run(id));
+            return id;
+        }
+
+        void run(int id) {
+            ranAt[id] = wheel.now();
+            order.add(id);
+            if (followUp[id] > 0) schedule(followUp[id]);
+        }
+
+        void cancel(int id) {
+            if (!timers[id].isScheduled()) return;
+            wheel.cancel(timers[id]);
+            cancelled[id] = true;
+        }
+
+        void finish(String what) {
+            long limit = wheel.now() + 7 * SPAN;
+            while (wheel.size() > 0 && wheel.now() < limit) wheel.advance();
+            check(wheel.size() == 0, what + ": " + wheel.size() + " timers still pending at " + wheel.now());
+            long[] expected = new long[count];
+            int pending = 0;
+            for (int id = 0; id < count; id++) {
+                check(cancelled[id] ? ranAt[id] < 0 : ranAt[id] == deadline[id],
+                        what + ": timer " + id + " due at " + deadline[id] + " ran at " + ranAt[id]);
+                if (!cancelled[id]) expected[pending++] = deadline[id];
+            }
+            expected = Arrays.copyOf(expected, pending);
+            Arrays.sort(expected);
+            long[] actual = new long[order.size()];
+            for (int i = 0; i < actual.length; i++) actual[i] = deadline[order.get(i)];
+            check(Arrays.equals(actual, expected), what + ": timers ran out of deadline order");
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}